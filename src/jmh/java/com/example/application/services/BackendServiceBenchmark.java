@@ -0,0 +1,36 @@
+package com.example.application.services;
+
+import com.example.application.services.BackendService.SalesData;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Sales data generation of {@link BackendService} without the simulated delay.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BackendServiceBenchmark {
+
+    private final BackendService backendService = new BackendService(
+            new BackendExecutor(Executors.newVirtualThreadPerTaskExecutor(), 0), new SimpleMeterRegistry());
+
+    @Benchmark
+    public List<SalesData> computeSalesData() {
+        return backendService.computeSalesData();
+    }
+}
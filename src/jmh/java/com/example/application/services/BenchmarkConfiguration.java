@@ -0,0 +1,40 @@
+package com.example.application.services;
+
+import com.example.application.data.SamplePerson;
+import com.example.application.data.SamplePersonRepository;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.autoconfigure.transaction.TransactionAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+/**
+ * Minimal context with the data layer on an embedded H2 database, without
+ * Vaadin and the web server.
+ */
+@SpringBootConfiguration
+@ImportAutoConfiguration({
+        DataSourceAutoConfiguration.class, HibernateJpaAutoConfiguration.class, TransactionAutoConfiguration.class})
+@EntityScan(basePackageClasses = SamplePerson.class)
+@EnableJpaRepositories(basePackageClasses = SamplePersonRepository.class)
+@Import({
+        SamplePersonService.class, SamplePersonCache.class, LocalEntityInvalidationChannel.class,
+        SamplePersonSearchIndex.class, SamplePersonChangeBroadcaster.class, SamplePersonImportService.class,
+        SamplePersonGenerator.class})
+class BenchmarkConfiguration {
+
+    static ConfigurableApplicationContext start() {
+        return new SpringApplicationBuilder(BenchmarkConfiguration.class)
+                .web(WebApplicationType.NONE)
+                .properties("spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                        "spring.jpa.hibernate.ddl-auto=create-drop",
+                        "logging.level.root=warn")
+                .run();
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.application.services;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Embedded stand-in for the push services of the browser vendors, to send
+ * notifications without real subscriptions or network.
+ * <p>
+ * Accepts Web Push protocol requests ({@code POST} with a VAPID
+ * {@code Authorization} header and a {@code TTL}) on
+ * {@code /push/<subscription>}. Each request is answered after the given
+ * latency with 201 Created, or with 503 Service Unavailable or 410 Gone at
+ * the given rates.
+ */
+final class PushEndpointSimulator implements AutoCloseable {
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Duration latency;
+    private final double errorRate;
+    private final double goneRate;
+
+    /**
+     * @param latency time until a request is answered
+     * @param errorRate share of requests answered with 503
+     * @param goneRate share of requests answered with 410
+     */
+    PushEndpointSimulator(Duration latency, double errorRate, double goneRate) throws IOException {
+        this.latency = latency;
+        this.errorRate = errorRate;
+        this.goneRate = goneRate;
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/push/", this::handle);
+        server.start();
+    }
+
+    String endpoint(String subscription) {
+        return "http://localhost:" + server.getAddress().getPort() + "/push/" + subscription;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            exchange.getRequestBody().readAllBytes();
+            exchange.sendResponseHeaders(respond(exchange), -1);
+        }
+    }
+
+    private int respond(HttpExchange exchange) {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            return 405;
+        }
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        if (authorization == null || !(authorization.startsWith("vapid ") || authorization.startsWith("WebPush "))) {
+            return 401;
+        }
+        if (exchange.getRequestHeaders().getFirst("TTL") == null) {
+            return 400;
+        }
+        try {
+            Thread.sleep(latency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 503;
+        }
+        double random = ThreadLocalRandom.current().nextDouble();
+        if (random < goneRate) {
+            return 410;
+        }
+        if (random < goneRate + errorRate) {
+            return 503;
+        }
+        return 201;
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.application.services;
+
+import com.example.application.data.SamplePerson;
+import com.example.application.data.SamplePersonRow;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+
+/**
+ * {@link SamplePersonService} against an embedded H2 database filled by
+ * {@link SamplePersonGenerator}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SamplePersonServiceBenchmark {
+
+    private static final int PAGE_SIZE = 50;
+    private static final Sort SORT = Sort.by("lastName");
+
+    @Param({"100000"})
+    public int rows;
+
+    private ConfigurableApplicationContext context;
+    private SamplePersonService service;
+    private long firstId;
+    private ScrollPosition deepPosition;
+    private SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkConfiguration.start();
+        service = context.getBean(SamplePersonService.class);
+        context.getBean(SamplePersonGenerator.class).generate(rows, 42);
+        firstId = service.list(PageRequest.of(0, 1, Sort.by("id"))).getContent().get(0).getId();
+
+        // keyset position right before the last page, for comparison with listDeepPage
+        Window<SamplePersonRow> window = service.listRows(ScrollPosition.keyset(), SORT, rows - PAGE_SIZE);
+        deepPosition = window.positionAt(window.size() - 1);
+        random = new SplittableRandom(42);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Page<SamplePerson> listFirstPage() {
+        return service.list(PageRequest.of(0, PAGE_SIZE, SORT));
+    }
+
+    @Benchmark
+    public Page<SamplePerson> listDeepPage() {
+        return service.list(PageRequest.of(rows / PAGE_SIZE - 1, PAGE_SIZE, SORT));
+    }
+
+    @Benchmark
+    public Window<SamplePersonRow> listRowsDeepKeyset() {
+        return service.listRows(deepPosition, SORT, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public int count() {
+        return service.count();
+    }
+
+    @Benchmark
+    public int estimateCount() {
+        return service.estimateCount();
+    }
+
+    @Benchmark
+    public SamplePerson get() {
+        return service.get(firstId + random.nextInt(rows)).orElseThrow();
+    }
+
+    @Benchmark
+    public SamplePerson save() {
+        SamplePerson person = service.get(firstId + random.nextInt(rows)).orElseThrow();
+        person.setImportant(!person.isImportant());
+        return service.save(person);
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.application.services;
+
+import com.example.application.services.WebPushService.BroadcastResult;
+import com.vaadin.flow.server.webpush.WebPushKeys;
+import com.vaadin.flow.server.webpush.WebPushMessage;
+import com.vaadin.flow.server.webpush.WebPushSubscription;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.SecureRandom;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Load harness for the delivery of {@link WebPushService#notifyAll}:
+ * encryption, VAPID signing and HTTP requests to a local
+ * {@link PushEndpointSimulator}, with synthetic subscriptions.
+ * <p>
+ * The throughput mode reports fan-outs and, as the {@code delivered}
+ * counter, notifications per second; the sample time mode reports the
+ * percentiles, including p99, of the time a fan-out to all subscribers
+ * takes. Subscriptions pruned after a 410 are registered again before
+ * every iteration. Run with e.g.
+ * {@code mvn -Pjmh verify -Djmh.includes=WebPushDeliveryBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class WebPushDeliveryBenchmark {
+
+    private static final Base64.Encoder BASE64 = Base64.getUrlEncoder().withoutPadding();
+
+    @Param({"1000", "10000"})
+    public int subscribers;
+
+    @Param({"20"})
+    public int latencyMillis;
+
+    @Param({"0.01"})
+    public double errorRate;
+
+    @Param({"0.01"})
+    public double goneRate;
+
+    @Param({"256"})
+    public int maxConcurrency;
+
+    private PushEndpointSimulator simulator;
+    private WebPushService webPushService;
+    private WebPushSubscriptionStore subscriptions;
+    private WebPushKeys userKeys;
+
+    /**
+     * Outcomes of the notifications, reported per second in throughput mode.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Notifications {
+
+        public long delivered;
+        public long undelivered;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            delivered = 0;
+            undelivered = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        simulator = new PushEndpointSimulator(Duration.ofMillis(latencyMillis), errorRate, goneRate);
+        subscriptions = new InMemoryWebPushSubscriptionStore();
+        // no coalescing and no rate limits, every invocation is a full fan-out
+        webPushService = new WebPushService(subscriptions, new SimpleMeterRegistry(), maxConcurrency, 3,
+                Duration.ofMillis(10), Duration.ZERO, 0, 0);
+        KeyPair vapidKeys = generateKeyPair();
+        webPushService.setVapidKeys(publicKey(vapidKeys), privateKey(vapidKeys), "mailto:benchmark@example.com");
+        // the keys only matter for encryption, so all subscribers can share them
+        byte[] auth = new byte[16];
+        new SecureRandom().nextBytes(auth);
+        userKeys = new WebPushKeys(publicKey(generateKeyPair()), BASE64.encodeToString(auth));
+    }
+
+    @Setup(Level.Iteration)
+    public void subscribe() {
+        for (int i = 0; i < subscribers; i++) {
+            subscriptions.put(new WebPushSubscription(simulator.endpoint("subscription-" + i), userKeys));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        webPushService.shutdown();
+        simulator.close();
+    }
+
+    @Benchmark
+    public BroadcastResult fanOut(Notifications notifications) {
+        BroadcastResult result = webPushService.notifyAll(
+                new WebPushMessage("Benchmark", "Delivery benchmark"), "benchmark").join();
+        notifications.delivered += result.delivered();
+        notifications.undelivered += result.pruned() + result.throttled() + result.failed();
+        return result;
+    }
+
+    private static KeyPair generateKeyPair() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp256r1"));
+        return generator.generateKeyPair();
+    }
+
+    // uncompressed point, as in PushSubscription.getKey("p256dh") and applicationServerKey
+    private static String publicKey(KeyPair keyPair) {
+        ECPublicKey key = (ECPublicKey) keyPair.getPublic();
+        byte[] point = new byte[65];
+        point[0] = 0x04;
+        copyUnsigned(key.getW().getAffineX(), point, 1);
+        copyUnsigned(key.getW().getAffineY(), point, 33);
+        return BASE64.encodeToString(point);
+    }
+
+    private static String privateKey(KeyPair keyPair) {
+        byte[] scalar = new byte[32];
+        copyUnsigned(((ECPrivateKey) keyPair.getPrivate()).getS(), scalar, 0);
+        return BASE64.encodeToString(scalar);
+    }
+
+    // big-endian, left-padded to 32 bytes
+    private static void copyUnsigned(BigInteger value, byte[] target, int offset) {
+        byte[] bytes = value.toByteArray();
+        int length = Math.min(bytes.length, 32);
+        System.arraycopy(bytes, bytes.length - length, target, offset + 32 - length, length);
+    }
+}
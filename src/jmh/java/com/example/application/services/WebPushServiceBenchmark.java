@@ -0,0 +1,65 @@
+package com.example.application.services;
+
+import com.vaadin.flow.server.webpush.WebPushKeys;
+import com.vaadin.flow.server.webpush.WebPushSubscription;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Fan-out of {@link WebPushService#notifyAll} with a stub sender, i.e.
+ * the cost of the service itself without any network.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WebPushServiceBenchmark {
+
+    @Param({"100", "10000"})
+    public int subscribers;
+
+    private final LongAdder sent = new LongAdder();
+    private WebPushService webPushService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        webPushService = new WebPushService(new InMemoryWebPushSubscriptionStore(), new SimpleMeterRegistry(),
+                256, 3, Duration.ofMillis(10), Duration.ZERO, 0, 0);
+        webPushService.setSender((subscription, message) -> {
+            sent.increment();
+            return 201;
+        });
+        for (int i = 0; i < subscribers; i++) {
+            webPushService.store(new WebPushSubscription("https://push.example/" + i,
+                    new WebPushKeys("p256dh-" + i, "auth-" + i)));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        webPushService.shutdown();
+    }
+
+    @Benchmark
+    public long notifyAllSubscribers() {
+        webPushService.notifyAll("Benchmark", "Fan-out benchmark", "web-notification").join();
+        return sent.sum();
+    }
+}
@@ -1,6 +1,5 @@
 package com.example.application;
 
-import com.example.application.data.SamplePersonRepository;
 import com.vaadin.flow.component.page.AppShellConfigurator;
 import com.vaadin.flow.component.page.Push;
 import com.vaadin.flow.server.PWA;
@@ -10,7 +9,10 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.sql.init.SqlDataSourceScriptDatabaseInitializer;
 import org.springframework.boot.autoconfigure.sql.init.SqlInitializationProperties;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
 import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import javax.sql.DataSource;
 
@@ -23,22 +25,30 @@ import javax.sql.DataSource;
 @Theme(value = "vaadin-examples", variant = Lumo.LIGHT)
 @Push
 @SpringBootApplication
+@EnableScheduling
 @PWA(name = "vaadin-examples", shortName = "vaadin-example")
 public class Application
         implements AppShellConfigurator {
 
     public static void main(String[] args) {
-        SpringApplication.run(Application.class, args);
+        SpringApplication application = new SpringApplication(Application.class);
+        // Record the startup steps for the StartupTimingReport
+        application.setApplicationStartup(new BufferingApplicationStartup(StartupTimingReport.CAPACITY));
+        application.run(args);
     }
 
     @Bean
     SqlDataSourceScriptDatabaseInitializer dataSourceScriptDatabaseInitializer(DataSource dataSource,
-                                                                               SqlInitializationProperties properties, SamplePersonRepository repository) {
-        // This bean ensures the database is only initialized when empty
+                                                                               SqlInitializationProperties properties) {
+        // This bean ensures the database is only initialized when empty. It
+        // checks with plain JDBC to not force the JPA repositories to
+        // initialize early, and stops at the first row instead of counting.
         return new SqlDataSourceScriptDatabaseInitializer(dataSource, properties) {
             @Override
             public boolean initializeDatabase() {
-                if (repository.count() == 0L) {
+                Boolean empty = new JdbcTemplate(dataSource).query("select id from sample_person fetch first row only",
+                        resultSet -> !resultSet.next());
+                if (Boolean.TRUE.equals(empty)) {
                     return super.initializeDatabase();
                 }
                 return false;
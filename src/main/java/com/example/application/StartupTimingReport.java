@@ -0,0 +1,91 @@
+package com.example.application;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Logs how long the application took to become ready and which startup
+ * phases took longest, based on the steps recorded by the
+ * {@link BufferingApplicationStartup} installed in {@link Application#main}.
+ * <p>
+ * Set {@code startup.report.file} to additionally write the timings of all
+ * phases as CSV, e.g. to track them between builds.
+ */
+@Component
+public class StartupTimingReport {
+
+    static final int CAPACITY = 10_000;
+    private static final int LOGGED_PHASES = 15;
+
+    private record Phase(String name, int count, Duration total) {}
+
+    private final String reportFile;
+
+    public StartupTimingReport(@Value("${startup.report.file:}") String reportFile) {
+        this.reportFile = reportFile;
+    }
+
+    @EventListener
+    public void onApplicationReady(ApplicationReadyEvent event) {
+        Duration timeToReady = Duration.ofMillis(ManagementFactory.getRuntimeMXBean().getUptime());
+        if (!(event.getApplicationContext().getApplicationStartup() instanceof BufferingApplicationStartup startup)) {
+            getLogger().info("Application ready {} ms after JVM start", timeToReady.toMillis());
+            return;
+        }
+        // draining also frees the recorded steps
+        List<Phase> phases = summarize(startup.drainBufferedTimeline());
+
+        StringBuilder report = new StringBuilder("Application ready ")
+                .append(timeToReady.toMillis()).append(" ms after JVM start, slowest startup phases:");
+        phases.stream().limit(LOGGED_PHASES).forEach(phase -> report.append(String.format("%n  %6d ms %5dx %s",
+                phase.total().toMillis(), phase.count(), phase.name())));
+        getLogger().info(report.toString());
+
+        if (!reportFile.isBlank()) {
+            write(Path.of(reportFile), timeToReady, phases);
+        }
+    }
+
+    private static List<Phase> summarize(StartupTimeline timeline) {
+        Map<String, List<StartupTimeline.TimelineEvent>> byName = timeline.getEvents().stream()
+                .collect(Collectors.groupingBy(event -> event.getStartupStep().getName()));
+        return byName.entrySet().stream()
+                .map(entry -> new Phase(entry.getKey(), entry.getValue().size(), entry.getValue().stream()
+                        .map(StartupTimeline.TimelineEvent::getDuration)
+                        .reduce(Duration.ZERO, Duration::plus)))
+                .sorted(Comparator.comparing(Phase::total).reversed())
+                .toList();
+    }
+
+    private void write(Path file, Duration timeToReady, List<Phase> phases) {
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            writer.println("phase,count,total_ms");
+            writer.println("application.ready,1," + timeToReady.toMillis());
+            phases.forEach(phase -> writer.println(
+                    phase.name() + "," + phase.count() + "," + phase.total().toMillis()));
+        } catch (IOException e) {
+            getLogger().warn("Failed to write startup report to {}", file, e);
+        }
+    }
+
+    private Logger getLogger() {
+        return LoggerFactory.getLogger(StartupTimingReport.class);
+    }
+}
@@ -12,8 +12,12 @@ public abstract class AbstractEntity {
 
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "idgenerator")
-    // The initial value is to account for data.sql demo data ids
-    @SequenceGenerator(name = "idgenerator", initialValue = 1000)
+    // The initial value is to account for data.sql demo data ids. Ids are
+    // allocated in blocks of 1000 so that bulk imports and generated data
+    // need one sequence call per 1000 rows instead of one per 50. Hibernate
+    // creates the sequence with INCREMENT BY 1000 to match; a sequence
+    // created outside of Hibernate must use the same increment.
+    @SequenceGenerator(name = "idgenerator", initialValue = 1000, allocationSize = 1000)
     private Long id;
 
     @Version
@@ -31,6 +35,10 @@ public abstract class AbstractEntity {
         return version;
     }
 
+    protected void setVersion(int version) {
+        this.version = version;
+    }
+
     @Override
     public int hashCode() {
         if (getId() != null) {
@@ -66,4 +66,23 @@ public class SamplePerson extends AbstractEntity {
         this.important = important;
     }
 
+    /**
+     * Creates a detached copy including id and version, e.g. for handing out
+     * cached instances without sharing mutable state.
+     */
+    public SamplePerson copy() {
+        SamplePerson copy = new SamplePerson();
+        copy.setId(getId());
+        copy.setVersion(getVersion());
+        copy.firstName = firstName;
+        copy.lastName = lastName;
+        copy.email = email;
+        copy.phone = phone;
+        copy.dateOfBirth = dateOfBirth;
+        copy.occupation = occupation;
+        copy.role = role;
+        copy.important = important;
+        return copy;
+    }
+
 }
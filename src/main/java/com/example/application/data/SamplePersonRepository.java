@@ -1,11 +1,41 @@
 package com.example.application.data;
 
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.lang.Nullable;
 
 public interface SamplePersonRepository
         extends
             JpaRepository<SamplePerson, Long>,
             JpaSpecificationExecutor<SamplePerson> {
 
+    /**
+     * Row count as estimated by the database statistics, without scanning the table.
+     */
+    @Nullable
+    @Query(value = "select row_count_estimate from information_schema.tables where table_name = 'SAMPLE_PERSON'",
+            nativeQuery = true)
+    Long estimateCount();
+
+    Page<SamplePersonRow> findRowsBy(Pageable pageable);
+
+    // a slice does not need the count query of a page
+    Slice<SamplePersonRow> findRowSliceBy(Pageable pageable);
+
+    Window<SamplePersonRow> findRowsBy(ScrollPosition position, Sort sort, Limit limit);
+
+    Page<SamplePersonRow> findRowsByIdIn(Collection<Long> ids, Pageable pageable);
+
+    List<SamplePersonRow> findRowsByIdIn(Collection<Long> ids);
+
 }
@@ -0,0 +1,29 @@
+package com.example.application.data;
+
+import java.time.LocalDate;
+
+/**
+ * Read-only projection of {@link SamplePerson} containing the columns shown
+ * in listings. Rows are fetched as plain tuples, so Hibernate neither
+ * manages them nor keeps dirty checking snapshots for them.
+ */
+public interface SamplePersonRow {
+
+    Long getId();
+
+    String getFirstName();
+
+    String getLastName();
+
+    String getEmail();
+
+    String getPhone();
+
+    LocalDate getDateOfBirth();
+
+    String getOccupation();
+
+    String getRole();
+
+    boolean isImportant();
+}
@@ -0,0 +1,136 @@
+package com.example.application.services;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import org.springframework.lang.Nullable;
+
+/**
+ * Executor for slow backend operations that keeps track of its saturation.
+ * <p>
+ * Tasks run on the given delegate, typically one virtual thread per task.
+ * Blocking calls such as {@link Thread#sleep} then only park the virtual
+ * thread instead of occupying a carrier or common pool thread. An optional
+ * limit bounds the number of tasks running at the same time; tasks over the
+ * limit wait without holding a platform thread.
+ * <p>
+ * Deliberately not an {@link java.util.concurrent.Executor}, so that
+ * registering it as a bean does not replace Spring Boot's
+ * {@code applicationTaskExecutor}.
+ */
+public class BackendExecutor {
+
+    private final ExecutorService delegate;
+    @Nullable
+    private final Semaphore permits;
+    private final int maxConcurrency;
+
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger peakActive = new AtomicInteger();
+    private final LongAdder completed = new LongAdder();
+
+    /**
+     * @param delegate executor the tasks run on
+     * @param maxConcurrency maximum number of concurrently running tasks, 0 for no limit
+     */
+    public BackendExecutor(ExecutorService delegate, int maxConcurrency) {
+        this.delegate = delegate;
+        this.maxConcurrency = maxConcurrency;
+        this.permits = maxConcurrency > 0 ? new Semaphore(maxConcurrency) : null;
+    }
+
+    /**
+     * Runs the supplier asynchronously, like
+     * {@link CompletableFuture#supplyAsync(Supplier, java.util.concurrent.Executor)}.
+     * Unlike there, cancelling the returned future also cancels the task:
+     * a task that has not started yet never runs, and a running task is
+     * interrupted.
+     */
+    public <T> CompletableFuture<T> supply(Supplier<T> supplier) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicBoolean started = new AtomicBoolean();
+        waiting.incrementAndGet();
+        Future<?> task = delegate.submit(() -> {
+            if (started.compareAndSet(false, true)) {
+                run(() -> {
+                    try {
+                        result.complete(supplier.get());
+                    } catch (Throwable e) {
+                        result.completeExceptionally(e);
+                    }
+                });
+            }
+        });
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                // a task cancelled before it started is no longer waiting
+                if (started.compareAndSet(false, true)) {
+                    waiting.decrementAndGet();
+                }
+                task.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    private void run(Runnable task) {
+        try {
+            if (permits != null) {
+                permits.acquire();
+            }
+        } catch (InterruptedException e) {
+            waiting.decrementAndGet();
+            Thread.currentThread().interrupt();
+            return;
+        }
+        waiting.decrementAndGet();
+        peakActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+        try {
+            task.run();
+        } finally {
+            active.decrementAndGet();
+            completed.increment();
+            if (permits != null) {
+                permits.release();
+            }
+        }
+    }
+
+    /**
+     * Registers gauges for waiting and active tasks, the peak of active
+     * tasks, the utilization of the concurrency limit and a counter of
+     * completed tasks, all prefixed with the given name.
+     */
+    public void bindTo(MeterRegistry registry, String name) {
+        Gauge.builder(name + ".waiting", waiting, AtomicInteger::get)
+                .description("Tasks submitted but not yet running")
+                .register(registry);
+        Gauge.builder(name + ".active", active, AtomicInteger::get)
+                .description("Tasks currently running")
+                .register(registry);
+        Gauge.builder(name + ".active.peak", peakActive, AtomicInteger::get)
+                .description("Highest number of concurrently running tasks")
+                .register(registry);
+        if (maxConcurrency > 0) {
+            Gauge.builder(name + ".utilization", active, value -> value.get() / (double) maxConcurrency)
+                    .description("Share of the concurrency limit in use")
+                    .register(registry);
+        }
+        FunctionCounter.builder(name + ".completed", completed, LongAdder::sum)
+                .description("Tasks completed")
+                .register(registry);
+    }
+
+    public void shutdownNow() {
+        delegate.shutdownNow();
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.application.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class BackendExecutorConfiguration {
+
+    /**
+     * Executor for the slow operations of {@link BackendService}. Uses
+     * virtual threads unless {@code backend.executor.virtual-threads} is
+     * false, in which case a fixed pool of
+     * {@code backend.executor.max-concurrency} platform threads is used.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    BackendExecutor backendExecutor(MeterRegistry meterRegistry,
+            @Value("${backend.executor.virtual-threads:true}") boolean virtualThreads,
+            @Value("${backend.executor.max-concurrency:0}") int maxConcurrency) {
+        BackendExecutor executor;
+        if (virtualThreads) {
+            ExecutorService delegate = Executors.newThreadPerTaskExecutor(
+                    Thread.ofVirtual().name("backend-", 0).factory());
+            executor = new BackendExecutor(delegate, maxConcurrency);
+        } else {
+            int threads = maxConcurrency > 0 ? maxConcurrency : Runtime.getRuntime().availableProcessors();
+            executor = new BackendExecutor(Executors.newFixedThreadPool(threads), 0);
+        }
+        executor.bindTo(meterRegistry, "backend.executor");
+        return executor;
+    }
+}
@@ -1,67 +1,192 @@
 package com.example.application.services;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
 import java.time.Month;
 import java.util.*;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
 
 @Service
 public class BackendService {
 
+    private static final int MONTHS = Month.values().length;
+    private static final Duration PRODUCT_DURATION = Duration.ofMillis(50);
+
+    private final BackendExecutor executor;
+
+    // concurrent identical requests share one execution, see SingleFlight
+    private final SingleFlight<String, String> slowFetches = new SingleFlight<>();
+    private final SingleFlight<String, List<SalesData>> salesDataGenerations = new SingleFlight<>();
+
+    /**
+     * @param executor executor for the slow operations, see {@link BackendExecutorConfiguration}
+     */
+    public BackendService(BackendExecutor executor, MeterRegistry meterRegistry) {
+        this.executor = executor;
+        slowFetches.bindTo(meterRegistry, "fetchSlowly");
+        salesDataGenerations.bindTo(meterRegistry, "generateRandomSalesData");
+    }
+
     public CompletableFuture<String> fetchSlowlyAsync() {
-        return CompletableFuture.supplyAsync(() -> {
+        return slowFetches.execute("fetchSlowly", () -> executor.supply(() -> {
             sleepFor(Duration.ofSeconds(3));
             return "I'm a response from a slow operation!";
-        });
+        }));
     }
 
     private void sleepFor(Duration duration) {
         try {
             Thread.sleep(duration);
         } catch (InterruptedException e) {
-            throw new RuntimeException(e);
+            // the future was cancelled, see BackendExecutor#supply
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while sleeping");
+        }
+    }
+
+    public enum Trend {
+        RISING("up", "green"),
+        FALLING("down", "red"),
+        STABLE("right", "black");
+
+        private static final Trend[] VALUES = values();
+
+        private final String direction;
+        private final String color;
+
+        Trend(String direction, String color) {
+            this.direction = direction;
+            this.color = color;
+        }
+
+        public String getDirection() {
+            return direction;
+        }
+
+        public String getColor() {
+            return color;
         }
     }
 
-    public record SalesData(
-            String productName,
-            Map<String, Integer> salesPerMonth,
-            Map<String, String> trendPerMonth) {}
+    /**
+     * Sales of a product per month, indexed by {@code Month.ordinal()}. The
+     * trend of each month compared to the previous one is packed into two
+     * bits per month. The sales array is copied on the way in and out, so
+     * instances are immutable and compare by content.
+     */
+    public record SalesData(String productName, int[] salesPerMonth, int trendBits) {
+
+        public SalesData {
+            if (salesPerMonth.length != MONTHS) {
+                throw new IllegalArgumentException("Expected sales for " + MONTHS + " months");
+            }
+            salesPerMonth = salesPerMonth.clone();
+        }
+
+        @Override
+        public int[] salesPerMonth() {
+            return salesPerMonth.clone();
+        }
+
+        public int sales(Month month) {
+            return salesPerMonth[month.ordinal()];
+        }
+
+        public Trend trend(Month month) {
+            return Trend.VALUES[(trendBits >>> (2 * month.ordinal())) & 0b11];
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof SalesData other && productName.equals(other.productName)
+                    && Arrays.equals(salesPerMonth, other.salesPerMonth) && trendBits == other.trendBits;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * productName.hashCode() + Arrays.hashCode(salesPerMonth)) + trendBits;
+        }
+
+        @Override
+        public String toString() {
+            return "SalesData[productName=" + productName + ", salesPerMonth=" + Arrays.toString(salesPerMonth)
+                    + ", trendBits=" + trendBits + "]";
+        }
+    }
 
     public CompletableFuture<List<SalesData>> generateRandomSalesData() {
-        return CompletableFuture.supplyAsync(() -> {
+        return salesDataGenerations.execute("generateRandomSalesData", () -> executor.supply(() -> {
             sleepFor(Duration.ofSeconds(5));
-            String[] products = {"Product A", "Product B", "Product C", "Product D", "Product E"};
-            List<SalesData> salesDataList = new ArrayList<>();
-            Random random = new Random();
+            return computeSalesData();
+        }));
+    }
 
-            for (String product : products) {
-                Map<String, Integer> salesPerMonth = new HashMap<>();
-                Map<String, String> trendPerMonth = new HashMap<>();
-                int previousSales = random.nextInt(1000);
-
-                for (Month month : Month.values()) {
-                    int sales = random.nextInt(1000);
-                    salesPerMonth.put(month.name(), sales);
-
-                    if (previousSales > 0) {
-                        double changePercentage = Math.abs((sales - previousSales) / (double) previousSales) * 100;
-                        String trend = changePercentage < 10 ? "stable" : sales > previousSales ? "rising" : "falling";
-                        trendPerMonth.put(month.name(), trend);
-                    } else {
-                        trendPerMonth.put(month.name(), "stable");
-                    }
-                    previousSales = sales;
+    /**
+     * Generates sales data for the given number of products and hands it
+     * to the consumer in chunks as soon as each chunk is ready, instead of
+     * delivering everything at the end. Each product takes
+     * {@link #PRODUCT_DURATION} to compute. The consumer is called on a
+     * backend thread. Cancelling the returned future stops the generation.
+     *
+     * @param productCount number of products
+     * @param chunkSize maximum number of products per chunk
+     * @param chunkConsumer receives the chunks in order
+     * @return completes after the last chunk was consumed
+     */
+    public CompletableFuture<Void> streamRandomSalesData(int productCount, int chunkSize,
+            Consumer<List<SalesData>> chunkConsumer) {
+        return executor.supply(() -> {
+            Random random = new Random();
+            List<SalesData> chunk = new ArrayList<>(chunkSize);
+            for (int i = 1; i <= productCount; i++) {
+                sleepFor(PRODUCT_DURATION);
+                chunk.add(computeSalesData("Product " + i, random));
+                if (chunk.size() == chunkSize || i == productCount) {
+                    chunkConsumer.accept(List.copyOf(chunk));
+                    chunk.clear();
                 }
+            }
+            return null;
+        });
+    }
+
+    // the actual computation, without the simulated delay
+    List<SalesData> computeSalesData() {
+        String[] products = {"Product A", "Product B", "Product C", "Product D", "Product E"};
+        List<SalesData> salesDataList = new ArrayList<>();
+        Random random = new Random();
 
-                salesDataList.add(new SalesData(product, salesPerMonth, trendPerMonth));
+        for (String product : products) {
+            salesDataList.add(computeSalesData(product, random));
+        }
+
+        return salesDataList;
+    }
+
+    private SalesData computeSalesData(String product, Random random) {
+        int[] salesPerMonth = new int[MONTHS];
+        int trendBits = 0;
+        int previousSales = random.nextInt(1000);
+
+        for (int month = 0; month < MONTHS; month++) {
+            int sales = random.nextInt(1000);
+            salesPerMonth[month] = sales;
+
+            Trend trend = Trend.STABLE;
+            if (previousSales > 0) {
+                double changePercentage = Math.abs((sales - previousSales) / (double) previousSales) * 100;
+                trend = changePercentage < 10 ? Trend.STABLE : sales > previousSales ? Trend.RISING : Trend.FALLING;
             }
+            trendBits |= trend.ordinal() << (2 * month);
+            previousSales = sales;
+        }
 
-            return salesDataList;
-        });
+        return new SalesData(product, salesPerMonth, trendBits);
     }
 
 }
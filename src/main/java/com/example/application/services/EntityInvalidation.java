@@ -0,0 +1,18 @@
+package com.example.application.services;
+
+import java.io.Serializable;
+import org.springframework.lang.Nullable;
+
+/**
+ * Message telling cache holders that an entity has changed.
+ *
+ * @param entityType fully qualified entity class name
+ * @param id entity id
+ * @param version version after the change, {@code null} if the entity was deleted
+ */
+public record EntityInvalidation(String entityType, Long id, @Nullable Integer version) implements Serializable {
+
+    public boolean isDeletion() {
+        return version == null;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.application.services;
+
+import com.vaadin.flow.shared.Registration;
+import java.util.function.Consumer;
+
+/**
+ * Channel used to keep entity caches consistent across application nodes.
+ * <p>
+ * Every published invalidation is delivered to all subscribers on all
+ * nodes, including the publishing one. A multi node deployment provides an
+ * implementation backed by its message broker; a single node uses
+ * {@link LocalEntityInvalidationChannel}.
+ */
+public interface EntityInvalidationChannel {
+
+    void publish(EntityInvalidation invalidation);
+
+    Registration subscribe(Consumer<EntityInvalidation> listener);
+}
@@ -0,0 +1,320 @@
+package com.example.application.services;
+
+import com.vaadin.flow.server.webpush.WebPushSubscription;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UTFDataFormatException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.lang.Nullable;
+
+/**
+ * Subscription store that keeps the subscriptions in memory like
+ * {@link InMemoryWebPushSubscriptionStore} and persists every change to an
+ * append-only log file.
+ * <p>
+ * On startup the log is replayed sequentially, which is fast even for
+ * millions of entries. Records hold the endpoint and the keys in the same
+ * compact binary form as in memory. When the log has grown to more than
+ * twice the number of live subscriptions, it is compacted in the
+ * background by rewriting only the live ones to a new file that
+ * atomically replaces the old one. A record that was only partially
+ * written when the process died is cut off the log on startup, so new
+ * records are appended right after the last complete one.
+ * <p>
+ * Every change is written to the log before it is applied in memory, so a
+ * change that could not be persisted is not visible either.
+ */
+public class FileWebPushSubscriptionStore extends InMemoryWebPushSubscriptionStore implements Closeable {
+
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+    private static final int MIN_RECORDS_TO_COMPACT = 1000;
+
+    private final Path file;
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "webpush-store-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // guarded by this
+    private DataOutputStream log;
+    // end of the last record written completely to the log
+    private long length;
+    private long records;
+    private boolean compactionScheduled;
+    private boolean closed;
+    // records appended while a compaction is running, added to the end of the compacted log
+    private ByteArrayOutputStream compactionTail;
+    private long compactionTailRecords;
+
+    public FileWebPushSubscriptionStore(Path file) throws IOException {
+        this.file = file;
+        if (Files.exists(file)) {
+            replay();
+        } else if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        getLogger().info("Loaded {} web push subscriptions from {}", size(), file);
+        synchronized (this) {
+            log = open(StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            length = Files.size(file);
+            if (records > size()) {
+                scheduleCompaction();
+            }
+        }
+    }
+
+    @Override
+    public synchronized void put(WebPushSubscription subscription) {
+        byte[] keys = encode(subscription.keys());
+        append(record(PUT, subscription.endpoint(), keys));
+        putEncoded(subscription.endpoint(), keys);
+        compactIfGrown();
+    }
+
+    @Override
+    public synchronized boolean remove(String endpoint) {
+        if (!encodedEntries().containsKey(endpoint)) {
+            return false;
+        }
+        append(record(REMOVE, endpoint, null));
+        super.remove(endpoint);
+        compactIfGrown();
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        compactor.shutdownNow();
+        synchronized (this) {
+            closed = true;
+            log.close();
+        }
+    }
+
+    private void replay() throws IOException {
+        // end of the last complete record, anything after it was cut short by a crash
+        long complete = 0;
+        try (CountingInputStream counter = new CountingInputStream(
+                        new BufferedInputStream(Files.newInputStream(file)));
+                DataInputStream in = new DataInputStream(counter)) {
+            while (true) {
+                byte type = in.readByte();
+                String endpoint = in.readUTF();
+                if (type == PUT) {
+                    byte[] keys = new byte[in.readUnsignedShort()];
+                    in.readFully(keys);
+                    putEncoded(endpoint, keys);
+                } else if (type == REMOVE) {
+                    super.remove(endpoint);
+                } else {
+                    break;
+                }
+                records++;
+                complete = counter.count;
+            }
+        } catch (EOFException | UTFDataFormatException e) {
+            // end of the log, or a partially written endpoint
+        }
+        long length = Files.size(file);
+        if (complete < length) {
+            getLogger().warn("Truncating {} bytes of an incomplete record at the end of {}", length - complete, file);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(complete);
+            }
+        }
+    }
+
+    private void append(byte[] record) {
+        try {
+            log.write(record);
+            log.flush();
+        } catch (IOException e) {
+            discardPartialRecord();
+            throw new UncheckedIOException("Could not write to " + file, e);
+        }
+        length += record.length;
+        records++;
+        if (compactionTail != null) {
+            compactionTail.writeBytes(record);
+            compactionTailRecords++;
+        }
+    }
+
+    /**
+     * Cuts off whatever part of a failed record reached the file, so the
+     * next record is not appended after it where replay would stop.
+     */
+    private void discardPartialRecord() {
+        try {
+            log.close();
+        } catch (IOException e) {
+            // the buffered rest of the record is dropped anyway
+        }
+        try {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(length);
+            }
+            log = open(StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            getLogger().error("Could not truncate the incomplete record at the end of {}", file, e);
+        }
+    }
+
+    private void compactIfGrown() {
+        if (records > MIN_RECORDS_TO_COMPACT && records > 2L * size()) {
+            scheduleCompaction();
+        }
+    }
+
+    private void scheduleCompaction() {
+        if (compactionScheduled) {
+            return;
+        }
+        compactionScheduled = true;
+        compactor.execute(() -> {
+            try {
+                compact();
+            } catch (IOException e) {
+                getLogger().error("Could not compact {}", file, e);
+            } finally {
+                synchronized (this) {
+                    compactionScheduled = false;
+                    compactionTail = null;
+                }
+            }
+        });
+    }
+
+    /**
+     * Writes the live subscriptions to a new file without blocking
+     * {@link #put} and {@link #remove}. Changes made meanwhile are also
+     * collected in {@link #compactionTail} and appended to the new file
+     * before it replaces the log. Replaying them over entries that already
+     * include some of them gives the same result, so the entries need not
+     * be copied first.
+     */
+    private void compact() throws IOException {
+        synchronized (this) {
+            compactionTail = new ByteArrayOutputStream();
+            compactionTailRecords = 0;
+        }
+        Path compacted = file.resolveSibling(file.getFileName() + ".compact");
+        long written = 0;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(compacted)))) {
+            for (Map.Entry<String, byte[]> entry : encodedEntries().entrySet()) {
+                write(out, PUT, entry.getKey(), entry.getValue());
+                written++;
+            }
+        }
+        synchronized (this) {
+            if (closed) {
+                Files.deleteIfExists(compacted);
+                return;
+            }
+            try (OutputStream out = Files.newOutputStream(compacted, StandardOpenOption.APPEND)) {
+                compactionTail.writeTo(out);
+            }
+            log.close();
+            Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            getLogger().debug("Compacted {} from {} to {} records", file, records, written + compactionTailRecords);
+            records = written + compactionTailRecords;
+            length = Files.size(file);
+            log = open(StandardOpenOption.APPEND);
+        }
+    }
+
+    private DataOutputStream open(StandardOpenOption... options) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file, options)));
+    }
+
+    /**
+     * Serializes a record up front, so one that cannot be stored is
+     * rejected before anything is written to the log.
+     */
+    private static byte[] record(byte type, String endpoint, @Nullable byte[] keys) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            write(new DataOutputStream(bytes), type, endpoint, keys);
+        } catch (UTFDataFormatException e) {
+            throw new IllegalArgumentException("Endpoint is too long to store: " + endpoint.length() + " characters", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void write(DataOutputStream out, byte type, String endpoint, @Nullable byte[] keys)
+            throws IOException {
+        if (type == PUT && keys.length > 0xFFFF) {
+            throw new IllegalArgumentException("Keys are too long to store: " + keys.length + " bytes");
+        }
+        out.writeByte(type);
+        out.writeUTF(endpoint);
+        if (type == PUT) {
+            out.writeShort(keys.length);
+            out.write(keys);
+        }
+    }
+
+    /**
+     * Counts the bytes read, to find the end of the last complete record.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+
+    private Logger getLogger() {
+        return LoggerFactory.getLogger(getClass());
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.application.services;
+
+import com.vaadin.flow.server.webpush.WebPushKeys;
+import com.vaadin.flow.server.webpush.WebPushSubscription;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import org.springframework.lang.Nullable;
+
+/**
+ * Subscription store that only keeps the subscriptions in memory.
+ * <p>
+ * To fit many subscriptions into a predictable amount of memory, only the
+ * endpoint is kept as a string, which the JVM stores with one byte per
+ * character. The keys are kept in a single byte array in their decoded
+ * binary form, 65 bytes for the public key and 16 for the authentication
+ * secret, instead of two base64 strings and a {@link WebPushSubscription}
+ * per entry. Subscription objects are only created while iterating.
+ */
+public class InMemoryWebPushSubscriptionStore implements WebPushSubscriptionStore {
+
+    // layout of the encoded keys: format, length of p256dh, p256dh, auth
+    private static final byte BINARY = 0;
+    private static final byte TEXT = 1;
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final Map<String, byte[]> keysByEndpoint = new ConcurrentHashMap<>();
+
+    @Override
+    public void put(WebPushSubscription subscription) {
+        putEncoded(subscription.endpoint(), encode(subscription.keys()));
+    }
+
+    @Nullable
+    @Override
+    public WebPushSubscription get(String endpoint) {
+        byte[] keys = keysByEndpoint.get(endpoint);
+        return keys != null ? new WebPushSubscription(endpoint, decode(keys)) : null;
+    }
+
+    @Override
+    public boolean remove(String endpoint) {
+        return keysByEndpoint.remove(endpoint) != null;
+    }
+
+    @Override
+    public void forEach(Consumer<WebPushSubscription> action) {
+        keysByEndpoint.forEach((endpoint, keys) -> action.accept(new WebPushSubscription(endpoint, decode(keys))));
+    }
+
+    @Override
+    public int size() {
+        return keysByEndpoint.size();
+    }
+
+    void putEncoded(String endpoint, byte[] keys) {
+        keysByEndpoint.put(endpoint, keys);
+    }
+
+    Map<String, byte[]> encodedEntries() {
+        return keysByEndpoint;
+    }
+
+    static byte[] encode(WebPushKeys keys) {
+        byte format = BINARY;
+        byte[] p256dh = decodeBase64(keys.p256dh());
+        byte[] auth = decodeBase64(keys.auth());
+        if (p256dh == null || auth == null) {
+            // not unpadded base64url as sent by browsers, keep the text as it is
+            format = TEXT;
+            p256dh = keys.p256dh().getBytes(StandardCharsets.UTF_8);
+            auth = keys.auth().getBytes(StandardCharsets.UTF_8);
+        }
+        return ByteBuffer.allocate(3 + p256dh.length + auth.length)
+                .put(format)
+                .putShort((short) p256dh.length)
+                .put(p256dh)
+                .put(auth)
+                .array();
+    }
+
+    // null unless the text is restored exactly when encoding the bytes again
+    private static byte[] decodeBase64(String text) {
+        try {
+            byte[] bytes = DECODER.decode(text);
+            return ENCODER.encodeToString(bytes).equals(text) ? bytes : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    static WebPushKeys decode(byte[] encoded) {
+        ByteBuffer buffer = ByteBuffer.wrap(encoded);
+        byte format = buffer.get();
+        byte[] p256dh = new byte[Short.toUnsignedInt(buffer.getShort())];
+        buffer.get(p256dh);
+        byte[] auth = new byte[buffer.remaining()];
+        buffer.get(auth);
+        if (format == TEXT) {
+            return new WebPushKeys(new String(p256dh, StandardCharsets.UTF_8), new String(auth, StandardCharsets.UTF_8));
+        }
+        return new WebPushKeys(ENCODER.encodeToString(p256dh), ENCODER.encodeToString(auth));
+    }
+}
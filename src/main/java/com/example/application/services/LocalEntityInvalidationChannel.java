@@ -0,0 +1,28 @@
+package com.example.application.services;
+
+import com.vaadin.flow.shared.Registration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-process {@link EntityInvalidationChannel} for single node deployments
+ * and tests. Listeners are notified synchronously on the publishing thread.
+ */
+@Component
+public class LocalEntityInvalidationChannel implements EntityInvalidationChannel {
+
+    private final List<Consumer<EntityInvalidation>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(EntityInvalidation invalidation) {
+        listeners.forEach(listener -> listener.accept(invalidation));
+    }
+
+    @Override
+    public Registration subscribe(Consumer<EntityInvalidation> listener) {
+        listeners.add(listener);
+        return () -> listeners.remove(listener);
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.application.services;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Notifies the subscribers of the {@link #TOPIC} topic whenever a new
+ * sales snapshot is available.
+ */
+@Component
+public class SalesReportNotifier {
+
+    public static final String TOPIC = "sales-reports";
+
+    public SalesReportNotifier(SalesSnapshotService salesSnapshotService, WebPushService webPushService) {
+        salesSnapshotService.addListener(snapshot -> webPushService.notifyTopic(TOPIC, "New sales report",
+                "Sales figures of " + snapshot.salesData().size() + " products are available", "web-notification"));
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.application.services;
+
+import com.example.application.services.BackendService.SalesData;
+import com.vaadin.flow.shared.Registration;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Shared, precomputed sales data for all sessions.
+ * <p>
+ * The snapshot is computed once on startup and recomputed in the
+ * background when it reaches {@code sales.snapshot.refresh-ahead} of its
+ * time to live {@code sales.snapshot.ttl}. Sessions always get the current
+ * snapshot immediately, only the very first request may have to wait for
+ * the initial computation. Listeners are notified about every new snapshot.
+ */
+@Service
+public class SalesSnapshotService {
+
+    /**
+     * @param salesData sales data shared by all sessions, must not be modified
+     * @param createdAt time the snapshot was computed
+     */
+    public record SalesSnapshot(List<SalesData> salesData, Instant createdAt) {}
+
+    private final BackendService backendService;
+    private final Duration refreshAfter;
+
+    private final CompletableFuture<SalesSnapshot> first = new CompletableFuture<>();
+    private volatile SalesSnapshot current;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private final List<Consumer<SalesSnapshot>> listeners = new CopyOnWriteArrayList<>();
+
+    public SalesSnapshotService(BackendService backendService,
+            @Value("${sales.snapshot.ttl:PT5M}") Duration ttl,
+            @Value("${sales.snapshot.refresh-ahead:0.8}") double refreshAhead) {
+        this.backendService = backendService;
+        this.refreshAfter = Duration.ofMillis((long) (ttl.toMillis() * refreshAhead));
+    }
+
+    /**
+     * @return the current snapshot, completed immediately unless the initial computation is still running
+     */
+    public CompletableFuture<SalesSnapshot> getSnapshot() {
+        SalesSnapshot snapshot = current;
+        return snapshot != null ? CompletableFuture.completedFuture(snapshot) : first.copy();
+    }
+
+    /**
+     * Registers a listener for new snapshots. Listeners are called on a
+     * background thread.
+     */
+    public Registration addListener(Consumer<SalesSnapshot> listener) {
+        listeners.add(listener);
+        return () -> listeners.remove(listener);
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${sales.snapshot.check-interval:PT10S}")
+    public void refreshIfDue() {
+        SalesSnapshot snapshot = current;
+        if (snapshot == null || snapshot.createdAt().plus(refreshAfter).isBefore(Instant.now())) {
+            refresh();
+        }
+    }
+
+    /**
+     * Starts computing a new snapshot unless a computation is already running.
+     */
+    public void refresh() {
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        backendService.generateRandomSalesData().whenComplete((salesData, error) -> {
+            refreshing.set(false);
+            if (error != null) {
+                getLogger().error("Failed to compute sales snapshot", error);
+                return;
+            }
+            SalesSnapshot snapshot = new SalesSnapshot(List.copyOf(salesData), Instant.now());
+            current = snapshot;
+            first.complete(snapshot);
+            // a failing listener must not keep the snapshot from the others
+            for (Consumer<SalesSnapshot> listener : listeners) {
+                try {
+                    listener.accept(snapshot);
+                } catch (RuntimeException e) {
+                    getLogger().error("Failed to publish sales snapshot", e);
+                }
+            }
+        });
+    }
+
+    private Logger getLogger() {
+        return LoggerFactory.getLogger(SalesSnapshotService.class);
+    }
+}
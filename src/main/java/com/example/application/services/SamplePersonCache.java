@@ -0,0 +1,99 @@
+package com.example.application.services;
+
+import com.example.application.data.SamplePerson;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded, least recently used cache of {@link SamplePerson} entities.
+ * <p>
+ * Only detached copies are stored and handed out, so callers may modify
+ * what they get without affecting other sessions. Entries are evicted when
+ * an {@link EntityInvalidation} with a newer version arrives, which keeps
+ * the cache consistent with changes made on other nodes.
+ * <p>
+ * The latest invalidated version of recently invalidated ids is remembered
+ * as well, so that an entity loaded before an invalidation arrived, while
+ * it was not cached, cannot be put afterwards and shadow the newer version
+ * or the deletion.
+ */
+@Component
+public class SamplePersonCache {
+
+    private static final String ENTITY_TYPE = SamplePerson.class.getName();
+    private static final int DELETED = Integer.MAX_VALUE;
+
+    // both guarded by this
+    private final Map<Long, SamplePerson> entries;
+    private final Map<Long, Integer> invalidatedVersions;
+    private final EntityInvalidationChannel channel;
+
+    public SamplePersonCache(EntityInvalidationChannel channel,
+            @Value("${sample-person.cache.max-size:1000}") int maxSize) {
+        this.channel = channel;
+        this.entries = boundedMap(maxSize);
+        this.invalidatedVersions = boundedMap(maxSize);
+        channel.subscribe(this::onInvalidation);
+    }
+
+    public synchronized Optional<SamplePerson> get(Long id) {
+        return Optional.ofNullable(entries.get(id)).map(SamplePerson::copy);
+    }
+
+    /**
+     * Caches a copy of the given entity unless a newer version is already
+     * cached or has been announced by an invalidation, or the entity has
+     * been deleted.
+     */
+    public synchronized void put(SamplePerson entity) {
+        Integer invalidated = invalidatedVersions.get(entity.getId());
+        if (invalidated != null && entity.getVersion() < invalidated) {
+            return;
+        }
+        SamplePerson copy = entity.copy();
+        entries.merge(copy.getId(), copy,
+                (cached, loaded) -> loaded.getVersion() >= cached.getVersion() ? loaded : cached);
+    }
+
+    /**
+     * Caches the saved entity and tells all nodes to drop older versions.
+     */
+    public void updated(SamplePerson entity) {
+        put(entity);
+        channel.publish(new EntityInvalidation(ENTITY_TYPE, entity.getId(), entity.getVersion()));
+    }
+
+    public void deleted(Long id) {
+        synchronized (this) {
+            invalidatedVersions.put(id, DELETED);
+            entries.remove(id);
+        }
+        channel.publish(new EntityInvalidation(ENTITY_TYPE, id, null));
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private synchronized void onInvalidation(EntityInvalidation invalidation) {
+        if (!ENTITY_TYPE.equals(invalidation.entityType())) {
+            return;
+        }
+        int version = invalidation.isDeletion() ? DELETED : invalidation.version();
+        invalidatedVersions.merge(invalidation.id(), version, Math::max);
+        entries.computeIfPresent(invalidation.id(), (id, cached) -> cached.getVersion() < version ? null : cached);
+    }
+
+    // least recently used entries beyond the size are dropped
+    private static <V> Map<Long, V> boundedMap(int maxSize) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, V> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+}
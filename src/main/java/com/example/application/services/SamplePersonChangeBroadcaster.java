@@ -0,0 +1,130 @@
+package com.example.application.services;
+
+import com.example.application.data.SamplePersonRepository;
+import com.example.application.data.SamplePersonRow;
+import com.vaadin.flow.shared.Registration;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Distributes changes to people to all interested listeners in this JVM,
+ * typically one per open view.
+ * <p>
+ * Changes are collected for a short window and delivered as one
+ * {@link SamplePersonChanges} batch. The current rows of updated people are
+ * loaded once per batch, not once per listener.
+ */
+@Component
+public class SamplePersonChangeBroadcaster {
+
+    private final SamplePersonRepository repository;
+    private final long batchWindowMillis;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "sample-person-changes");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final List<Consumer<SamplePersonChanges>> listeners = new CopyOnWriteArrayList<>();
+
+    // pending changes, guarded by this
+    private Set<Long> updated = new LinkedHashSet<>();
+    private int inserted;
+    private Set<Long> deleted = new LinkedHashSet<>();
+    private boolean flushScheduled;
+
+    public SamplePersonChangeBroadcaster(SamplePersonRepository repository,
+            @Value("${sample-person.changes.batch-window:200ms}") Duration batchWindow) {
+        this.repository = repository;
+        this.batchWindowMillis = batchWindow.toMillis();
+    }
+
+    /**
+     * Registers a listener for change batches. Listeners are called on a
+     * background thread and must not block.
+     */
+    public Registration register(Consumer<SamplePersonChanges> listener) {
+        listeners.add(listener);
+        return () -> listeners.remove(listener);
+    }
+
+    public synchronized void inserted(int count) {
+        inserted += count;
+        scheduleFlush();
+    }
+
+    public synchronized void updated(Long id) {
+        updated.add(id);
+        scheduleFlush();
+    }
+
+    public synchronized void deleted(Long id) {
+        updated.remove(id);
+        deleted.add(id);
+        scheduleFlush();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void scheduleFlush() {
+        if (!flushScheduled && !listeners.isEmpty()) {
+            flushScheduled = true;
+            executor.schedule(this::flush, batchWindowMillis, TimeUnit.MILLISECONDS);
+        } else if (listeners.isEmpty()) {
+            // nobody is listening, nothing to deliver
+            updated.clear();
+            inserted = 0;
+            deleted.clear();
+        }
+    }
+
+    private void flush() {
+        Set<Long> updatedIds;
+        int insertedCount;
+        Set<Long> deletedIds;
+        synchronized (this) {
+            updatedIds = updated;
+            insertedCount = inserted;
+            deletedIds = deleted;
+            updated = new LinkedHashSet<>();
+            inserted = 0;
+            deleted = new LinkedHashSet<>();
+            flushScheduled = false;
+        }
+        SamplePersonChanges changes;
+        try {
+            List<SamplePersonRow> rows = updatedIds.isEmpty() ? List.of() : repository.findRowsByIdIn(updatedIds);
+            changes = new SamplePersonChanges(rows, insertedCount, Set.copyOf(deletedIds));
+        } catch (RuntimeException e) {
+            getLogger().error("Failed to load changed people", e);
+            return;
+        }
+        // a failing listener must not keep the changes from the others
+        for (Consumer<SamplePersonChanges> listener : listeners) {
+            try {
+                listener.accept(changes);
+            } catch (RuntimeException e) {
+                getLogger().error("Failed to broadcast changes", e);
+            }
+        }
+    }
+
+    private Logger getLogger() {
+        return LoggerFactory.getLogger(SamplePersonChangeBroadcaster.class);
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.application.services;
+
+import com.example.application.data.SamplePersonRow;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Batch of changes to people collected by {@link SamplePersonChangeBroadcaster}.
+ *
+ * @param updated current rows of updated people
+ * @param inserted number of new people
+ * @param deleted ids of deleted people
+ */
+public record SamplePersonChanges(List<SamplePersonRow> updated, int inserted, Set<Long> deleted) {
+
+    /**
+     * @return whether rows were added or removed, so that item level updates are not enough
+     */
+    public boolean isStructural() {
+        return inserted > 0 || !deleted.isEmpty();
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.application.services;
+
+import com.example.application.data.SamplePerson;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.lang.Nullable;
+
+/**
+ * CSV format shared by the import and export of {@link SamplePerson}s.
+ * The header names the columns with the entity property names.
+ */
+final class SamplePersonCsv {
+
+    static final String[] COLUMNS = {
+            "firstName", "lastName", "email", "phone", "dateOfBirth", "occupation", "role", "important"};
+
+    private SamplePersonCsv() {
+    }
+
+    /**
+     * @return for every entry in {@link #COLUMNS} its index in the header, or -1 if missing
+     */
+    static int[] columnIndexes(List<String> header) {
+        Map<String, Integer> positions = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            positions.put(header.get(i).trim(), i);
+        }
+        int[] indexes = new int[COLUMNS.length];
+        for (int i = 0; i < COLUMNS.length; i++) {
+            indexes[i] = positions.getOrDefault(COLUMNS[i], -1);
+        }
+        return indexes;
+    }
+
+    static SamplePerson toSamplePerson(List<String> values, int[] columnIndexes) {
+        SamplePerson person = new SamplePerson();
+        person.setFirstName(value(values, columnIndexes[0]));
+        person.setLastName(value(values, columnIndexes[1]));
+        person.setEmail(value(values, columnIndexes[2]));
+        person.setPhone(value(values, columnIndexes[3]));
+        String dateOfBirth = value(values, columnIndexes[4]);
+        person.setDateOfBirth(dateOfBirth == null ? null : LocalDate.parse(dateOfBirth));
+        person.setOccupation(value(values, columnIndexes[5]));
+        person.setRole(value(values, columnIndexes[6]));
+        person.setImportant(Boolean.parseBoolean(value(values, columnIndexes[7])));
+        return person;
+    }
+
+    static void writeHeader(Writer writer) throws IOException {
+        writer.write(String.join(",", COLUMNS));
+        writer.write('\n');
+    }
+
+    static void write(Writer writer, SamplePerson person) throws IOException {
+        writeValue(writer, person.getFirstName());
+        writer.write(',');
+        writeValue(writer, person.getLastName());
+        writer.write(',');
+        writeValue(writer, person.getEmail());
+        writer.write(',');
+        writeValue(writer, person.getPhone());
+        writer.write(',');
+        writeValue(writer, person.getDateOfBirth() == null ? null : person.getDateOfBirth().toString());
+        writer.write(',');
+        writeValue(writer, person.getOccupation());
+        writer.write(',');
+        writeValue(writer, person.getRole());
+        writer.write(',');
+        writer.write(Boolean.toString(person.isImportant()));
+        writer.write('\n');
+    }
+
+    /**
+     * Reads the next record. Values may be quoted, quoted values may contain
+     * line breaks. Records end with {@code \n}, {@code \r\n} or {@code \r}.
+     *
+     * @return the values of the record, or {@code null} at the end of the input
+     */
+    @Nullable
+    static List<String> readRecord(BufferedReader reader) throws IOException {
+        int c = reader.read();
+        if (c < 0) {
+            return null;
+        }
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (; c >= 0; c = reader.read()) {
+            if (quoted) {
+                if (c == '"') {
+                    reader.mark(1);
+                    if (reader.read() == '"') {
+                        value.append('"');
+                    } else {
+                        reader.reset();
+                        quoted = false;
+                    }
+                } else {
+                    value.append((char) c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else if (c == '\n') {
+                break;
+            } else if (c == '\r') {
+                reader.mark(1);
+                if (reader.read() != '\n') {
+                    reader.reset();
+                }
+                break;
+            } else {
+                value.append((char) c);
+            }
+        }
+        values.add(value.toString());
+        return values;
+    }
+
+    private static String value(List<String> values, int index) {
+        if (index < 0 || index >= values.size() || values.get(index).isEmpty()) {
+            return null;
+        }
+        return values.get(index);
+    }
+
+    private static void writeValue(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+                && value.indexOf('\r') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
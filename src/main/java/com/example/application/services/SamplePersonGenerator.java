@@ -0,0 +1,123 @@
+package com.example.application.services;
+
+import com.example.application.data.SamplePerson;
+import com.example.application.services.SamplePersonImportService.ImportResult;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.LongStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Generates realistic looking {@link SamplePerson}s in bulk, e.g. to test
+ * paging, sorting and counting with production sized tables.
+ * <p>
+ * The generated content is deterministic: person number {@code n} for a
+ * given seed is always the same, independent of how the work is split
+ * between threads. Only the assigned ids depend on the insertion order.
+ */
+@Service
+public class SamplePersonGenerator {
+
+    private static final int ROWS_PER_TASK = 20_000;
+    private static final LocalDate OLDEST_BIRTH_DATE = LocalDate.of(1940, 1, 1);
+    private static final int BIRTH_DATE_RANGE_DAYS = 70 * 365;
+
+    private static final String[] FIRST_NAMES = {
+            "Eula", "Barry", "Eugenia", "Alejandro", "Cora", "Willie", "Ivan", "Lenora", "Gertrude", "Ina",
+            "Maud", "Leroy", "Ada", "Nellie", "Lucas", "Adele", "Jesse", "Sallie", "Mabel", "Ernest",
+            "Hannah", "Oscar", "Rosa", "Victor", "Leah", "Milton", "Irene", "Hugo", "Stella", "Felix"};
+    private static final String[] LAST_NAMES = {
+            "Lane", "Rodriquez", "Selvi", "Miles", "Tesi", "Ishii", "Lee", "Pinto", "Henry", "Vogel",
+            "Garner", "Harris", "Nakamura", "Ferrari", "Olsen", "Keller", "Moreau", "Novak", "Berg", "Silva",
+            "Fischer", "Kowalski", "Jensen", "Costa", "Larsen", "Weber", "Marino", "Dubois", "Virtanen", "Kuehn"};
+    private static final String[] OCCUPATIONS = {
+            "Insurance Clerk", "Mortarman", "Beer Coil Cleaner", "Scale Attendant", "Wheel Truer", "Nurse",
+            "Software Engineer", "Carpenter", "Accountant", "Teacher", "Electrician", "Pharmacist",
+            "Architect", "Chef", "Pilot", "Librarian", "Mechanic", "Translator", "Plumber", "Designer"};
+    private static final String[] ROLES = {"Worker", "Manager", "External"};
+    private static final String[] EMAIL_DOMAINS = {
+            "example.com", "mail.test", "inbox.test", "corp.example", "home.example"};
+
+    private final SamplePersonImportService importService;
+
+    public SamplePersonGenerator(SamplePersonImportService importService) {
+        this.importService = importService;
+    }
+
+    /**
+     * Generates and inserts the given number of people using all available
+     * cores. Blocks until all rows are inserted.
+     *
+     * @param rows number of people to generate
+     * @param seed seed, the same seed always produces the same people
+     */
+    public ImportResult generate(long rows, long seed) {
+        long start = System.nanoTime();
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Long>> tasks = new ArrayList<>();
+            for (long first = 0; first < rows; first += ROWS_PER_TASK) {
+                long from = first;
+                long to = Math.min(rows, first + ROWS_PER_TASK);
+                tasks.add(executor.submit(() -> importService.insert(LongStream.range(from, to)
+                        .mapToObj(index -> person(seed, index)))));
+            }
+            long inserted = 0;
+            for (Future<Long> task : tasks) {
+                inserted += task.get();
+            }
+            ImportResult result = new ImportResult(inserted, Duration.ofNanos(System.nanoTime() - start));
+            getLogger().info("Generated {} people on {} threads in {} ms ({} rows/s)", result.rows(), threads,
+                    result.duration().toMillis(), Math.round(result.rowsPerSecond()));
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while generating people", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to generate people", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Creates person number {@code index} for the given seed, without inserting it.
+     */
+    public static SamplePerson person(long seed, long index) {
+        SplittableRandom random = new SplittableRandom(seed * 0x9E3779B97F4A7C15L + index);
+        String firstName = pick(random, FIRST_NAMES);
+        String lastName = pick(random, LAST_NAMES);
+
+        SamplePerson person = new SamplePerson();
+        person.setFirstName(firstName);
+        person.setLastName(lastName);
+        person.setEmail((firstName + "." + lastName).toLowerCase(Locale.ROOT) + index + "@"
+                + pick(random, EMAIL_DOMAINS));
+        person.setPhone(String.format("(%03d) %03d-%04d", random.nextInt(200, 1000), random.nextInt(1000),
+                random.nextInt(10000)));
+        person.setDateOfBirth(OLDEST_BIRTH_DATE.plusDays(random.nextInt(BIRTH_DATE_RANGE_DAYS)));
+        person.setOccupation(pick(random, OCCUPATIONS));
+        person.setRole(pick(random, ROLES));
+        person.setImportant(random.nextInt(10) == 0);
+        return person;
+    }
+
+    private static String pick(SplittableRandom random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private Logger getLogger() {
+        return LoggerFactory.getLogger(SamplePersonGenerator.class);
+    }
+}
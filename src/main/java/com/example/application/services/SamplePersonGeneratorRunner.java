@@ -0,0 +1,34 @@
+package com.example.application.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fills the database with generated people on startup when the
+ * {@code generate-data} profile is active, see
+ * {@code application-generate-data.properties}.
+ */
+@Component
+@Profile("generate-data")
+public class SamplePersonGeneratorRunner implements ApplicationRunner {
+
+    private final SamplePersonGenerator generator;
+    private final long rows;
+    private final long seed;
+
+    public SamplePersonGeneratorRunner(SamplePersonGenerator generator,
+            @Value("${sample-person.generator.rows}") long rows,
+            @Value("${sample-person.generator.seed}") long seed) {
+        this.generator = generator;
+        this.rows = rows;
+        this.seed = seed;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        generator.generate(rows, seed);
+    }
+}
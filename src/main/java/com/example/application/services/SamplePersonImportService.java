@@ -0,0 +1,145 @@
+package com.example.application.services;
+
+import com.example.application.data.SamplePerson;
+import jakarta.persistence.EntityManager;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Streaming bulk import of {@link SamplePerson} rows.
+ * <p>
+ * Rows are persisted in JDBC batches and the persistence context is
+ * cleared after every batch, so memory use does not depend on the number
+ * of imported rows. Each chunk of rows is committed in its own transaction.
+ */
+@Service
+public class SamplePersonImportService {
+
+    /**
+     * @param rows number of imported rows
+     * @param duration time spent importing
+     */
+    public record ImportResult(long rows, Duration duration) {
+
+        public double rowsPerSecond() {
+            long millis = Math.max(1, duration.toMillis());
+            return rows * 1000.0 / millis;
+        }
+    }
+
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final SamplePersonService samplePersonService;
+    private final int batchSize;
+    private final int chunkSize;
+
+    public SamplePersonImportService(EntityManager entityManager, TransactionTemplate transactionTemplate,
+            SamplePersonService samplePersonService,
+            @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}") int batchSize,
+            @Value("${sample-person.import.chunk-size:5000}") int chunkSize) {
+        this.entityManager = entityManager;
+        this.transactionTemplate = transactionTemplate;
+        this.samplePersonService = samplePersonService;
+        this.batchSize = batchSize;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Imports people from a UTF-8 encoded CSV stream in the format written
+     * by {@link SamplePersonService#export}. The first line is a header
+     * naming the columns, using the {@link SamplePerson} property names.
+     */
+    public ImportResult importCsv(InputStream csv) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(csv, StandardCharsets.UTF_8));
+        List<String> header = SamplePersonCsv.readRecord(reader);
+        if (header == null) {
+            return new ImportResult(0, Duration.ZERO);
+        }
+        int[] columnIndexes = SamplePersonCsv.columnIndexes(header);
+        // records are read one by one as the import consumes them, a quoted value may span lines
+        Stream<List<String>> records = Stream.generate(() -> readRecord(reader))
+                .takeWhile(Objects::nonNull);
+        try {
+            return importAll(records
+                    .filter(values -> values.size() > 1 || !values.get(0).isBlank())
+                    .map(values -> SamplePersonCsv.toSamplePerson(values, columnIndexes)));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static List<String> readRecord(BufferedReader reader) {
+        try {
+            return SamplePersonCsv.readRecord(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Imports all people of the given stream. The stream is consumed lazily,
+     * only one chunk of entities is held in memory at a time.
+     */
+    public ImportResult importAll(Stream<SamplePerson> people) {
+        long start = System.nanoTime();
+        long rows = insert(people);
+        ImportResult result = new ImportResult(rows, Duration.ofNanos(System.nanoTime() - start));
+        getLogger().info("Imported {} people in {} ms ({} rows/s)", result.rows(), result.duration().toMillis(),
+                Math.round(result.rowsPerSecond()));
+        return result;
+    }
+
+    /**
+     * Persists all people of the given stream chunk by chunk.
+     *
+     * @return number of inserted rows
+     */
+    long insert(Stream<SamplePerson> people) {
+        long rows = 0;
+        Iterator<SamplePerson> iterator = people.iterator();
+        List<SamplePerson> chunk = new ArrayList<>(chunkSize);
+        while (iterator.hasNext()) {
+            chunk.add(iterator.next());
+            if (chunk.size() == chunkSize || !iterator.hasNext()) {
+                persist(chunk);
+                samplePersonService.afterBulkInsert(chunk);
+                rows += chunk.size();
+                chunk.clear();
+            }
+        }
+        return rows;
+    }
+
+    private void persist(List<SamplePerson> chunk) {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < chunk.size(); i++) {
+                entityManager.persist(chunk.get(i));
+                if ((i + 1) % batchSize == 0) {
+                    entityManager.flush();
+                    entityManager.clear();
+                }
+            }
+            entityManager.flush();
+            entityManager.clear();
+        });
+    }
+
+    private Logger getLogger() {
+        return LoggerFactory.getLogger(SamplePersonImportService.class);
+    }
+}
@@ -0,0 +1,411 @@
+package com.example.application.services;
+
+import com.example.application.data.SamplePerson;
+import com.example.application.data.SamplePersonRepository;
+import com.example.application.data.SamplePersonRow;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory trigram index over first name, last name, email and occupation
+ * of all {@link SamplePerson}s, used for type-ahead search without
+ * {@code LIKE '%x%'} table scans.
+ * <p>
+ * The index is built when the application is ready and kept up to date by
+ * {@link SamplePersonService}. A search intersects the posting lists of the
+ * query trigrams and verifies the remaining candidates against the indexed
+ * text, so results are exact substring matches. Queries shorter than
+ * {@link #MIN_QUERY_LENGTH} are not supported, as they match large parts
+ * of the data anyway.
+ * <p>
+ * To keep the index compact for millions of people, every indexed person
+ * gets a document number and the posting lists are sorted {@code int}
+ * arrays of document numbers. An updated person keeps its number and a
+ * removed person's number is reused. Since candidates are verified anyway,
+ * posting lists are not changed when a document loses a trigram; the
+ * outdated entries are only counted and dropped once they make up half of
+ * a list.
+ */
+@Component
+public class SamplePersonSearchIndex {
+
+    public static final int MIN_QUERY_LENGTH = 3;
+
+    private static final int GRAM = 3;
+    private static final int LOAD_BATCH_SIZE = 5000;
+    private static final char FIELD_SEPARATOR = '\n';
+    private static final int MIN_STALE_TO_COMPACT = 16;
+
+    private final SamplePersonRepository repository;
+
+    // all fields guarded by lock
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, PostingList> postings = new HashMap<>();
+    private final Map<Long, Integer> documentsById = new HashMap<>();
+    // id and lower case text per document number, fields separated by FIELD_SEPARATOR, null if free
+    private long[] ids = new long[1024];
+    private String[] texts = new String[1024];
+    private int nextDocument;
+    private int[] freeDocuments = new int[16];
+    private int freeCount;
+    // ids removed while a rebuild is running, which must not be added back from an older read
+    @Nullable
+    private Set<Long> removedWhileRebuilding;
+
+    public SamplePersonSearchIndex(SamplePersonRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * Adds all people in the database that are not indexed yet. People
+     * indexed meanwhile, e.g. by a bulk insert on startup or a concurrent
+     * save, are newer than the rows read here and are kept.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            removedWhileRebuilding = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            Sort byId = Sort.by("id");
+            Window<SamplePersonRow> window = repository.findRowsBy(ScrollPosition.keyset(), byId,
+                    Limit.of(LOAD_BATCH_SIZE));
+            while (!window.isEmpty()) {
+                window.forEach(row -> index(row.getId(), false, row.getFirstName(), row.getLastName(),
+                        row.getEmail(), row.getOccupation()));
+                if (!window.hasNext()) {
+                    break;
+                }
+                window = repository.findRowsBy(window.positionAt(window.size() - 1), byId,
+                        Limit.of(LOAD_BATCH_SIZE));
+            }
+        } finally {
+            lock.writeLock().lock();
+            try {
+                removedWhileRebuilding = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        getLogger().info("Indexed {} people in {} ms", size(), System.currentTimeMillis() - start);
+    }
+
+    public void put(SamplePerson person) {
+        index(person.getId(), true, person.getFirstName(), person.getLastName(), person.getEmail(),
+                person.getOccupation());
+    }
+
+    public void remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            if (removedWhileRebuilding != null) {
+                removedWhileRebuilding.add(id);
+            }
+            Integer document = documentsById.remove(id);
+            if (document != null) {
+                String text = texts[document];
+                texts[document] = null;
+                trigrams(text).forEach(this::markStale);
+                if (freeCount == freeDocuments.length) {
+                    freeDocuments = Arrays.copyOf(freeDocuments, freeCount * 2);
+                }
+                freeDocuments[freeCount++] = document;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds people whose indexed fields contain the given text, ignoring
+     * case. People with a field starting with the text are ranked first,
+     * then by id.
+     *
+     * @param text text to search for, at least {@link #MIN_QUERY_LENGTH} characters
+     * @param limit maximum number of ids to return
+     * @return ids of the best matches, best first
+     */
+    public List<Long> search(String text, int limit) {
+        String query = text.trim().toLowerCase(Locale.ROOT);
+        if (query.length() < MIN_QUERY_LENGTH || limit <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            List<PostingList> lists = new ArrayList<>();
+            for (String trigram : trigrams(query)) {
+                PostingList list = postings.get(trigram);
+                if (list == null) {
+                    return List.of();
+                }
+                lists.add(list);
+            }
+            lists.sort(Comparator.comparingInt(PostingList::entries));
+            return topMatches(lists, query, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documentsById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param replace whether to replace the document of an already indexed id
+     */
+    private void index(Long id, boolean replace, String... fields) {
+        String text = Stream.of(fields)
+                .map(field -> field == null ? "" : field.toLowerCase(Locale.ROOT))
+                .collect(Collectors.joining(String.valueOf(FIELD_SEPARATOR)));
+        Set<String> trigrams = trigrams(text);
+        lock.writeLock().lock();
+        try {
+            Integer existing = documentsById.get(id);
+            if (!replace && (existing != null
+                    || (removedWhileRebuilding != null && removedWhileRebuilding.contains(id)))) {
+                return;
+            }
+            if (existing != null) {
+                // only the trigrams that changed touch the posting lists
+                Set<String> previous = trigrams(texts[existing]);
+                texts[existing] = text;
+                previous.stream().filter(trigram -> !trigrams.contains(trigram)).forEach(this::markStale);
+                trigrams.stream().filter(trigram -> !previous.contains(trigram))
+                        .forEach(trigram -> add(trigram, existing));
+                return;
+            }
+            int document = freeCount > 0 ? freeDocuments[--freeCount] : newDocument();
+            ids[document] = id;
+            texts[document] = text;
+            documentsById.put(id, document);
+            trigrams.forEach(trigram -> add(trigram, document));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private int newDocument() {
+        int document = nextDocument++;
+        if (document == ids.length) {
+            ids = Arrays.copyOf(ids, document * 2);
+            texts = Arrays.copyOf(texts, document * 2);
+        }
+        return document;
+    }
+
+    private void add(String trigram, int document) {
+        PostingList list = postings.computeIfAbsent(trigram, PostingList::new);
+        list.add(document);
+        compactIfNeeded(list);
+    }
+
+    private void markStale(String trigram) {
+        PostingList list = postings.get(trigram);
+        if (list != null) {
+            list.markStale();
+            compactIfNeeded(list);
+        }
+    }
+
+    private void compactIfNeeded(PostingList list) {
+        if (list.needsCompaction()) {
+            list.compact();
+            if (list.entries() == 0) {
+                postings.remove(list.trigram);
+            }
+        }
+    }
+
+    private record Match(long id, int score) {}
+
+    // the best matches first; a bounded heap keeps only the limit best candidates
+    private List<Long> topMatches(List<PostingList> lists, String query, int limit) {
+        Comparator<Match> best = Comparator.comparingInt(Match::score).thenComparingLong(Match::id);
+        PriorityQueue<Match> worstFirst = new PriorityQueue<>(best.reversed());
+        List<PostingList> others = lists.subList(1, lists.size());
+        lists.get(0).forEach(document -> {
+            for (PostingList other : others) {
+                if (!other.contains(document)) {
+                    return;
+                }
+            }
+            int score = score(texts[document], query);
+            if (score < 0) {
+                return;
+            }
+            Match match = new Match(ids[document], score);
+            if (worstFirst.size() < limit) {
+                worstFirst.add(match);
+            } else if (best.compare(match, worstFirst.peek()) < 0) {
+                worstFirst.poll();
+                worstFirst.add(match);
+            }
+        });
+        List<Match> matches = new ArrayList<>(worstFirst);
+        matches.sort(best);
+        return matches.stream().map(Match::id).collect(Collectors.toList());
+    }
+
+    /**
+     * Document numbers that may contain a trigram. New documents are
+     * appended to a sorted array. Reused numbers are mostly smaller than
+     * the last one, they go to a small sorted array of inserts instead,
+     * which is merged into the main one when it is full. Entries are only
+     * dropped when the list is compacted.
+     */
+    private final class PostingList {
+
+        private static final int MAX_INSERTS = 256;
+
+        private final String trigram;
+        private int[] sorted = new int[4];
+        private int size;
+        private int[] inserts = new int[0];
+        private int insertCount;
+        // entries whose document no longer contains the trigram
+        private int stale;
+
+        PostingList(String trigram) {
+            this.trigram = trigram;
+        }
+
+        void add(int document) {
+            if (size == 0 || document > sorted[size - 1]) {
+                if (size == sorted.length) {
+                    sorted = Arrays.copyOf(sorted, size + (size >> 1) + 1);
+                }
+                sorted[size++] = document;
+            } else if (contains(document)) {
+                // the document had the trigram before, its entry is current again
+                stale = Math.max(0, stale - 1);
+            } else {
+                int index = -Arrays.binarySearch(inserts, 0, insertCount, document) - 1;
+                if (insertCount == inserts.length) {
+                    inserts = Arrays.copyOf(inserts, Math.max(4, insertCount * 2));
+                }
+                System.arraycopy(inserts, index, inserts, index + 1, insertCount - index);
+                inserts[index] = document;
+                insertCount++;
+            }
+        }
+
+        void markStale() {
+            stale++;
+        }
+
+        boolean contains(int document) {
+            return Arrays.binarySearch(sorted, 0, size, document) >= 0
+                    || (insertCount > 0 && Arrays.binarySearch(inserts, 0, insertCount, document) >= 0);
+        }
+
+        void forEach(IntConsumer action) {
+            for (int i = 0; i < size; i++) {
+                action.accept(sorted[i]);
+            }
+            for (int i = 0; i < insertCount; i++) {
+                action.accept(inserts[i]);
+            }
+        }
+
+        int entries() {
+            return size + insertCount;
+        }
+
+        boolean needsCompaction() {
+            return insertCount >= MAX_INSERTS || (stale >= MIN_STALE_TO_COMPACT && 2 * stale > entries());
+        }
+
+        /**
+         * Merges the inserts into the sorted array and drops the entries of
+         * documents that no longer contain the trigram.
+         */
+        void compact() {
+            int[] merged = new int[Math.max(4, entries() - stale)];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < size || j < insertCount) {
+                int document = j == insertCount || (i < size && sorted[i] < inserts[j]) ? sorted[i++] : inserts[j++];
+                if (texts[document] != null && texts[document].contains(trigram)) {
+                    if (count == merged.length) {
+                        merged = Arrays.copyOf(merged, count * 2);
+                    }
+                    merged[count++] = document;
+                }
+            }
+            sorted = merged;
+            size = count;
+            inserts = new int[0];
+            insertCount = 0;
+            stale = 0;
+        }
+    }
+
+    /**
+     * @return 0 if a field starts with the query, 1 if a field contains it, -1 otherwise
+     */
+    private static int score(@Nullable String document, String query) {
+        if (document == null) {
+            return -1;
+        }
+        int index = document.indexOf(query);
+        if (index < 0) {
+            return -1;
+        }
+        while (index >= 0) {
+            if (index == 0 || document.charAt(index - 1) == FIELD_SEPARATOR) {
+                return 0;
+            }
+            index = document.indexOf(query, index + 1);
+        }
+        return 1;
+    }
+
+    private static Set<String> trigrams(String text) {
+        Set<String> trigrams = new HashSet<>();
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            String trigram = text.substring(i, i + GRAM);
+            if (trigram.indexOf(FIELD_SEPARATOR) < 0) {
+                trigrams.add(trigram);
+            }
+        }
+        return trigrams;
+    }
+
+    private Logger getLogger() {
+        return LoggerFactory.getLogger(SamplePersonSearchIndex.class);
+    }
+}
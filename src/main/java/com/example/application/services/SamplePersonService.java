@@ -2,31 +2,121 @@ package com.example.application.services;
 
 import com.example.application.data.SamplePerson;
 import com.example.application.data.SamplePersonRepository;
+import com.example.application.data.SamplePersonRow;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import jakarta.persistence.EntityManager;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class SamplePersonService {
 
+    public enum ExportFormat {
+        CSV("text/csv", "csv"),
+        JSON("application/json", "json");
+
+        private final String contentType;
+        private final String fileExtension;
+
+        ExportFormat(String contentType, String fileExtension) {
+            this.contentType = contentType;
+            this.fileExtension = fileExtension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getFileExtension() {
+            return fileExtension;
+        }
+    }
+
     private final SamplePersonRepository repository;
+    private final EntityManager entityManager;
+    private final int exportFetchSize;
+    private final SamplePersonCache cache;
+    private final SamplePersonSearchIndex searchIndex;
+    private final SamplePersonChangeBroadcaster changeBroadcaster;
+
+    // the last count with the generation it was started in, only valid while the generation is current
+    private final AtomicReference<CachedCount> cachedCount = new AtomicReference<>();
+    // incremented on every modification of the table
+    private final AtomicLong countGeneration = new AtomicLong();
 
-    public SamplePersonService(SamplePersonRepository repository) {
+    public SamplePersonService(SamplePersonRepository repository, SamplePersonCache cache,
+            SamplePersonSearchIndex searchIndex, SamplePersonChangeBroadcaster changeBroadcaster,
+            EntityManager entityManager, @Value("${sample-person.export.fetch-size:1000}") int exportFetchSize) {
         this.repository = repository;
+        this.cache = cache;
+        this.searchIndex = searchIndex;
+        this.changeBroadcaster = changeBroadcaster;
+        this.entityManager = entityManager;
+        this.exportFetchSize = exportFetchSize;
     }
 
+    /**
+     * Returns the entity with the given id. Served from {@link SamplePersonCache}
+     * when possible; the returned instance is never shared with other callers.
+     */
     public Optional<SamplePerson> get(Long id) {
-        return repository.findById(id);
+        Optional<SamplePerson> cached = cache.get(id);
+        if (cached.isPresent()) {
+            return cached;
+        }
+        Optional<SamplePerson> loaded = repository.findById(id);
+        loaded.ifPresent(cache::put);
+        return loaded;
     }
 
     public SamplePerson save(SamplePerson entity) {
-        return repository.save(entity);
+        boolean isNew = entity.getId() == null;
+        SamplePerson saved = repository.save(entity);
+        clearCounts();
+        cache.updated(saved);
+        searchIndex.put(saved);
+        if (isNew) {
+            changeBroadcaster.inserted(1);
+        } else {
+            changeBroadcaster.updated(saved.getId());
+        }
+        return saved;
     }
 
     public void delete(Long id) {
         repository.deleteById(id);
+        clearCounts();
+        cache.deleted(id);
+        searchIndex.remove(id);
+        changeBroadcaster.deleted(id);
     }
 
     public Page<SamplePerson> list(Pageable pageable) {
@@ -37,8 +127,193 @@ public class SamplePersonService {
         return repository.findAll(filter, pageable);
     }
 
+    /**
+     * Keyset (seek) based listing. Unlike the {@link Pageable} variants the
+     * database does not have to skip over all preceding rows, so the cost of
+     * a window does not grow with its distance from the start.
+     *
+     * @param position position to continue from, {@link ScrollPosition#keyset()} for the first window
+     * @param sort sort order, the id is appended as a tiebreaker so that positions are unique
+     * @param limit maximum number of items in the window
+     */
+    public Window<SamplePerson> list(ScrollPosition position, Sort sort, int limit) {
+        return list(position, sort, limit, Specification.where(null));
+    }
+
+    public Window<SamplePerson> list(ScrollPosition position, Sort sort, int limit,
+            Specification<SamplePerson> filter) {
+        return repository.findBy(filter, query -> query
+                .sortBy(withIdTiebreaker(sort))
+                .limit(limit)
+                .scroll(position));
+    }
+
+    /**
+     * Lists read-only rows containing only the columns needed for listings.
+     * Use {@link #get(Long)} to load the full entity for editing.
+     */
+    @Transactional(readOnly = true)
+    public Page<SamplePersonRow> listRows(Pageable pageable) {
+        return repository.findRowsBy(pageable);
+    }
+
+    /**
+     * Like {@link #listRows(Pageable)}, without counting all rows.
+     */
+    @Transactional(readOnly = true)
+    public Slice<SamplePersonRow> listRowSlice(Pageable pageable) {
+        return repository.findRowSliceBy(pageable);
+    }
+
+    /**
+     * Keyset based variant of {@link #listRows(Pageable)}, see
+     * {@link #list(ScrollPosition, Sort, int)}.
+     */
+    @Transactional(readOnly = true)
+    public Window<SamplePersonRow> listRows(ScrollPosition position, Sort sort, int limit) {
+        return repository.findRowsBy(position, withIdTiebreaker(sort), Limit.of(limit));
+    }
+
+    /**
+     * Lists the rows with the given ids, e.g. the result of {@link #search}.
+     * Without a sort, the rows keep the order of the ids, so a ranked search
+     * result stays ranked across pages.
+     */
+    @Transactional(readOnly = true)
+    public Page<SamplePersonRow> listRows(List<Long> ids, Pageable pageable) {
+        if (pageable.getSort().isSorted()) {
+            return repository.findRowsByIdIn(ids, pageable);
+        }
+        int from = (int) Math.min(pageable.getOffset(), ids.size());
+        List<Long> pageIds = ids.subList(from, Math.min(from + pageable.getPageSize(), ids.size()));
+        Map<Long, Integer> positions = new HashMap<>();
+        for (int i = 0; i < pageIds.size(); i++) {
+            positions.put(pageIds.get(i), i);
+        }
+        List<SamplePersonRow> rows = new ArrayList<>(repository.findRowsByIdIn(pageIds));
+        rows.sort(Comparator.comparing(row -> positions.get(row.getId())));
+        return new PageImpl<>(rows, pageable, ids.size());
+    }
+
+    /**
+     * Finds the ids of people whose first name, last name, email or
+     * occupation contains the given text, using the in-memory
+     * {@link SamplePersonSearchIndex}, best matches first. Texts shorter
+     * than {@link SamplePersonSearchIndex#MIN_QUERY_LENGTH} find nothing.
+     *
+     * @param text text to search for, case is ignored
+     * @param limit maximum number of ids to return
+     */
+    public List<Long> search(String text, int limit) {
+        return searchIndex.search(text, limit);
+    }
+
+    /**
+     * Writes all people to the given stream, ordered by id.
+     * <p>
+     * Rows are read through a forward-only cursor fetching
+     * {@code sample-person.export.fetch-size} rows per round-trip and are
+     * detached as soon as they are written, so memory use does not depend
+     * on the size of the table. The output stream is flushed but not closed.
+     *
+     * @return number of exported people
+     */
+    @Transactional(readOnly = true)
+    public long export(ExportFormat format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        try (Stream<SamplePerson> people = entityManager
+                .createQuery("select p from SamplePerson p order by p.id", SamplePerson.class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, exportFetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream()) {
+            long rows = switch (format) {
+                case CSV -> exportCsv(people, writer);
+                case JSON -> exportJson(people, writer);
+            };
+            writer.flush();
+            return rows;
+        }
+    }
+
+    private long exportCsv(Stream<SamplePerson> people, Writer writer) throws IOException {
+        SamplePersonCsv.writeHeader(writer);
+        long rows = 0;
+        for (SamplePerson person : (Iterable<SamplePerson>) people::iterator) {
+            SamplePersonCsv.write(writer, person);
+            entityManager.detach(person);
+            rows++;
+        }
+        return rows;
+    }
+
+    private long exportJson(Stream<SamplePerson> people, Writer writer) throws IOException {
+        long rows = 0;
+        JsonGenerator json = new JsonFactory().createGenerator(writer);
+        json.writeStartArray();
+        for (SamplePerson person : (Iterable<SamplePerson>) people::iterator) {
+            json.writeStartObject();
+            json.writeNumberField("id", person.getId());
+            json.writeStringField("firstName", person.getFirstName());
+            json.writeStringField("lastName", person.getLastName());
+            json.writeStringField("email", person.getEmail());
+            json.writeStringField("phone", person.getPhone());
+            json.writeStringField("dateOfBirth",
+                    person.getDateOfBirth() == null ? null : person.getDateOfBirth().toString());
+            json.writeStringField("occupation", person.getOccupation());
+            json.writeStringField("role", person.getRole());
+            json.writeBooleanField("important", person.isImportant());
+            json.writeEndObject();
+            entityManager.detach(person);
+            rows++;
+        }
+        json.writeEndArray();
+        json.flush();
+        return rows;
+    }
+
+    private static Sort withIdTiebreaker(Sort sort) {
+        return sort.getOrderFor("id") == null ? sort.and(Sort.by("id")) : sort;
+    }
+
+    /**
+     * Called after people have been inserted in bulk, bypassing {@link #save}.
+     */
+    void afterBulkInsert(Collection<SamplePerson> inserted) {
+        clearCounts();
+        inserted.forEach(searchIndex::put);
+        changeBroadcaster.inserted(inserted.size());
+    }
+
+    /**
+     * Counts all people. The result is cached until the next modification.
+     */
     public int count() {
-        return (int) repository.count();
+        long generation = countGeneration.get();
+        CachedCount cached = cachedCount.get();
+        if (cached != null && cached.generation() == generation) {
+            return (int) cached.count();
+        }
+        long count = repository.count();
+        // a count from before a modification is stored with its old generation and never read
+        cachedCount.accumulateAndGet(new CachedCount(generation, count),
+                (current, counted) -> current == null || current.generation() < generation ? counted : current);
+        return (int) count;
+    }
+
+    /**
+     * Cheap, approximate row count read from the table statistics. Falls
+     * back to the exact {@link #count()} if the database provides no
+     * estimate.
+     */
+    public int estimateCount() {
+        Long estimate = repository.estimateCount();
+        return estimate != null ? estimate.intValue() : count();
+    }
+
+    private record CachedCount(long generation, long count) {}
+
+    private void clearCounts() {
+        countGeneration.incrementAndGet();
     }
 
 }
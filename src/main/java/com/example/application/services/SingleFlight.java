@@ -0,0 +1,128 @@
+package com.example.application.services;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent identical calls: while a call for a key is in
+ * flight, further calls for the same key share its result instead of
+ * starting their own. Once the call completes, the next call for the key
+ * starts a new one; results are not cached.
+ * <p>
+ * The shared call is cancelled once every caller has cancelled its future,
+ * so work nobody waits for any more is not finished in vain.
+ *
+ * @param <K> key identifying identical calls
+ * @param <V> result type
+ */
+public class SingleFlight<K, V> {
+
+    private final Map<K, Flight<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * Returns the result of the call in flight for the key, or starts the
+     * given call if there is none. Every caller gets its own future, so
+     * completing or cancelling it does not affect the other callers; only
+     * when all of them are cancelled is the future of the call cancelled.
+     */
+    public CompletableFuture<V> execute(K key, Supplier<CompletableFuture<V>> call) {
+        Flight<V> created = new Flight<>();
+        Flight<V> flight = inFlight.compute(key, (k, existing) -> {
+            if (existing == null) {
+                existing = created;
+            }
+            existing.callers++;
+            return existing;
+        });
+        CompletableFuture<V> copy = flight.result.copy();
+        copy.whenComplete((result, error) -> {
+            if (copy.isCancelled()) {
+                leave(key, flight);
+            }
+        });
+        if (flight != created) {
+            coalesced.increment();
+            return copy;
+        }
+        executed.increment();
+        flight.result.whenComplete((result, error) -> inFlight.remove(key, flight));
+        try {
+            flight.start(call.get());
+        } catch (RuntimeException e) {
+            flight.result.completeExceptionally(e);
+        }
+        return copy;
+    }
+
+    private void leave(K key, Flight<V> flight) {
+        boolean abandoned = inFlight.computeIfPresent(key, (k, current) ->
+                current != flight || --current.callers > 0 ? current : null) == null;
+        if (abandoned) {
+            flight.cancel();
+        }
+    }
+
+    private static final class Flight<V> {
+
+        private final CompletableFuture<V> result = new CompletableFuture<>();
+        // guarded by the map entry, see compute and computeIfPresent
+        private int callers;
+        private volatile CompletableFuture<V> call;
+
+        void start(CompletableFuture<V> call) {
+            this.call = call;
+            call.whenComplete((value, error) -> {
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(value);
+                }
+            });
+            if (result.isCancelled()) {
+                call.cancel(true);
+            }
+        }
+
+        void cancel() {
+            result.cancel(true);
+            CompletableFuture<V> started = call;
+            if (started != null) {
+                started.cancel(true);
+            }
+        }
+    }
+
+    public long getExecuted() {
+        return executed.sum();
+    }
+
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    /**
+     * Registers counters of executed and coalesced calls and a gauge of
+     * calls in flight, tagged with the given operation name.
+     */
+    public void bindTo(MeterRegistry registry, String operation) {
+        FunctionCounter.builder("backend.calls.executed", executed, LongAdder::sum)
+                .description("Calls that were actually executed")
+                .tag("operation", operation)
+                .register(registry);
+        FunctionCounter.builder("backend.calls.coalesced", coalesced, LongAdder::sum)
+                .description("Calls that shared the result of an identical call in flight")
+                .tag("operation", operation)
+                .register(registry);
+        Gauge.builder("backend.calls.in-flight", inFlight, Map::size)
+                .tag("operation", operation)
+                .register(registry);
+    }
+}
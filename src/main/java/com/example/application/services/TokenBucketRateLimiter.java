@@ -0,0 +1,99 @@
+package com.example.application.services;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket per key: every key may take up to {@code burst} permits at
+ * once, refilled at {@code permitsPerMinute}.
+ * <p>
+ * Buckets only exist for keys that were limited recently. Call
+ * {@link #evictFull()} now and then to drop the buckets that have refilled
+ * completely and thus behave like a new one.
+ */
+final class TokenBucketRateLimiter {
+
+    private final double permitsPerNano;
+    private final double capacity;
+    private final LongSupplier nanoTime;
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * @param permitsPerMinute refill rate, 0 for no limit
+     * @param burst maximum number of permits available at once
+     */
+    TokenBucketRateLimiter(int permitsPerMinute, int burst) {
+        this(permitsPerMinute, burst, System::nanoTime);
+    }
+
+    // with a clock that tests can advance
+    TokenBucketRateLimiter(int permitsPerMinute, int burst, LongSupplier nanoTime) {
+        this.permitsPerNano = permitsPerMinute / (double) TimeUnit.MINUTES.toNanos(1);
+        this.capacity = Math.max(1, burst);
+        this.nanoTime = nanoTime;
+    }
+
+    boolean tryAcquire(String key) {
+        if (permitsPerNano == 0) {
+            return true;
+        }
+        long now = nanoTime.getAsLong();
+        return buckets.computeIfAbsent(key, k -> new Bucket(now)).tryAcquire(now);
+    }
+
+    /**
+     * @return the time in nanoseconds until the key gets a permit again, 0 if it has one now
+     */
+    long nanosUntilAvailable(String key) {
+        Bucket bucket = buckets.get(key);
+        return bucket != null ? bucket.nanosUntilAvailable(nanoTime.getAsLong()) : 0;
+    }
+
+    void evictFull() {
+        long now = nanoTime.getAsLong();
+        // a permit taken from a bucket concurrently with its eviction is not
+        // counted, which at worst lets one more request through
+        buckets.values().removeIf(bucket -> bucket.isFull(now));
+    }
+
+    int size() {
+        return buckets.size();
+    }
+
+    private final class Bucket {
+
+        // guarded by this
+        private double tokens = capacity;
+        private long updated;
+
+        Bucket(long now) {
+            this.updated = now;
+        }
+
+        synchronized boolean tryAcquire(long now) {
+            refill(now);
+            if (tokens < 1) {
+                return false;
+            }
+            tokens--;
+            return true;
+        }
+
+        synchronized long nanosUntilAvailable(long now) {
+            refill(now);
+            return tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / permitsPerNano);
+        }
+
+        synchronized boolean isFull(long now) {
+            refill(now);
+            return tokens >= capacity;
+        }
+
+        private void refill(long now) {
+            tokens = Math.min(capacity, tokens + Math.max(0, now - updated) * permitsPerNano);
+            updated = Math.max(updated, now);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.application.services;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.lang.Nullable;
+
+/**
+ * Index of the subscription endpoints by user and by topic, so that a
+ * notification for a user or a topic only has to look at their own
+ * subscriptions instead of all of them.
+ * <p>
+ * Lookups are lock-free and see concurrent changes weakly consistent, like
+ * iterating a {@link ConcurrentHashMap}. Changes are synchronized to keep
+ * the forward and the reverse mappings consistent; they only happen when
+ * a subscription is added or removed.
+ */
+final class WebPushRecipientIndex {
+
+    private record Recipient(@Nullable String user, Set<String> topics) {}
+
+    private final Map<String, Set<String>> endpointsByUser = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> endpointsByTopic = new ConcurrentHashMap<>();
+    // user and topics of each endpoint, to remove it from the index again
+    private final Map<String, Recipient> recipients = new ConcurrentHashMap<>();
+
+    /**
+     * Indexes the endpoint under the user, if any, and the topics,
+     * replacing what it was indexed under before.
+     */
+    synchronized void put(String endpoint, @Nullable String user, Set<String> topics) {
+        remove(endpoint);
+        Recipient recipient = new Recipient(user, Set.copyOf(topics));
+        if (user == null && recipient.topics().isEmpty()) {
+            return;
+        }
+        recipients.put(endpoint, recipient);
+        if (user != null) {
+            add(endpointsByUser, user, endpoint);
+        }
+        recipient.topics().forEach(topic -> add(endpointsByTopic, topic, endpoint));
+    }
+
+    synchronized void remove(String endpoint) {
+        Recipient recipient = recipients.remove(endpoint);
+        if (recipient == null) {
+            return;
+        }
+        if (recipient.user() != null) {
+            remove(endpointsByUser, recipient.user(), endpoint);
+        }
+        recipient.topics().forEach(topic -> remove(endpointsByTopic, topic, endpoint));
+    }
+
+    Set<String> endpointsOfUser(String user) {
+        return endpointsByUser.getOrDefault(user, Set.of());
+    }
+
+    Set<String> endpointsOfTopic(String topic) {
+        return endpointsByTopic.getOrDefault(topic, Set.of());
+    }
+
+    private static void add(Map<String, Set<String>> index, String key, String endpoint) {
+        index.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(endpoint);
+    }
+
+    private static void remove(Map<String, Set<String>> index, String key, String endpoint) {
+        index.computeIfPresent(key, (k, endpoints) -> {
+            endpoints.remove(endpoint);
+            return endpoints.isEmpty() ? null : endpoints;
+        });
+    }
+}
@@ -1,19 +1,48 @@
 package com.example.application.services;
 
 import com.vaadin.flow.server.webpush.WebPush;
-import com.vaadin.flow.server.webpush.WebPushException;
 import com.vaadin.flow.server.webpush.WebPushMessage;
 import com.vaadin.flow.server.webpush.WebPushSubscription;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import nl.martijndwars.webpush.Notification;
+import nl.martijndwars.webpush.PushService;
+import org.apache.http.HttpResponse;
+import org.apache.http.util.EntityUtils;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 import org.vaadin.lineawesome.LineAwesomeIconUrl;
 
 import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
 import java.security.GeneralSecurityException;
-import java.util.HashMap;
+import java.security.Security;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 @Service
 public class WebPushService {
@@ -25,9 +54,139 @@ public class WebPushService {
     @Value("${subject}")
     private String subject;
 
-    private final Map<String, WebPushSubscription> endpointToSubscription = new HashMap<>();
+    private final WebPushSubscriptionStore subscriptions;
+    private final WebPushRecipientIndex recipientIndex = new WebPushRecipientIndex();
 
     WebPush webPush;
+    private PushService pushService;
+
+    /**
+     * Sends a single notification and returns the HTTP status code of the
+     * push service. Abstracted so that the transport can be replaced, e.g.
+     * by a stub in benchmarks.
+     */
+    @FunctionalInterface
+    interface WebPushSender {
+        int send(WebPushSubscription subscription, WebPushMessage message) throws Exception;
+    }
+
+    private WebPushSender sender = this::sendWithPushService;
+
+    void setSender(WebPushSender sender) {
+        this.sender = sender;
+    }
+
+    /**
+     * Replaces the configured VAPID keys, e.g. by generated ones when
+     * sending to a simulated push service.
+     */
+    synchronized void setVapidKeys(String publicKey, String privateKey, String subject) {
+        this.publicKey = publicKey;
+        this.privateKey = privateKey;
+        this.subject = subject;
+        this.pushService = null;
+    }
+
+    private enum Delivery {
+        DELIVERED, PRUNED, THROTTLED, FAILED
+    }
+
+    /**
+     * Outcome of sending a notification to all subscriptions.
+     *
+     * @param delivered notifications accepted by the push services
+     * @param pruned subscriptions removed because they are gone or expired
+     * @param throttled notifications held back because the subscription was notified too often, the latest
+     *                  per subscription and collapse key is sent once the subscription may be notified again
+     * @param failed notifications that could not be delivered, even after retrying
+     */
+    public record BroadcastResult(long delivered, long pruned, long throttled, long failed) {}
+
+    /**
+     * The subscriptions a notification is sent to, resolved when it is sent.
+     */
+    @FunctionalInterface
+    private interface Recipients {
+        void forEach(Consumer<WebPushSubscription> action);
+    }
+
+    private record PendingBroadcast(WebPushMessage message, Recipients recipients, String collapseKey,
+                                    long dueNanos, CompletableFuture<BroadcastResult> result) {}
+
+    // deliveries started but not completed per place in the concurrency limit, so that the executor
+    // always has work queued while other deliveries wait for a retry
+    private static final int IN_FLIGHT_PER_SENDER = 4;
+
+    private final BackendExecutor executor;
+    // walks the recipients of broadcasts, one virtual thread each
+    private final ExecutorService broadcaster = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("webpush-broadcast-", 0).factory());
+    // deliveries of all broadcasts that have been started and not completed yet
+    private final Semaphore inFlight;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
+    private final long coalesceWindowMillis;
+    private final TokenBucketRateLimiter rateLimiter;
+    private final Counter collapsed;
+    private final Map<Delivery, Counter> outcomes = new EnumMap<>(Delivery.class);
+    // flushes coalesced broadcasts and evicts refilled rate limit buckets
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "webpush-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // broadcasts waiting for the end of the coalescing window by recipients and collapse key, and throttled
+    // notifications waiting for their subscription's rate limit by endpoint and collapse key, guarded by this
+    private final Map<String, PendingBroadcast> pending = new LinkedHashMap<>();
+    private boolean flushScheduled;
+    private long flushDueNanos;
+
+    /**
+     * @param maxConcurrency maximum number of notifications sent at the same time
+     * @param maxAttempts attempts per notification when the push service is unavailable
+     * @param retryBackoff delay before the first retry, doubled for every further one
+     * @param coalesceWindow time notifications are held back to be merged with others, 0 to send at once
+     * @param ratePerMinute notifications per subscription and minute, 0 for no limit
+     * @param rateBurst notifications a subscription may receive at once
+     */
+    public WebPushService(WebPushSubscriptionStore subscriptions, MeterRegistry meterRegistry,
+            @Value("${webpush.fanout.max-concurrency:256}") int maxConcurrency,
+            @Value("${webpush.retry.max-attempts:3}") int maxAttempts,
+            @Value("${webpush.retry.backoff:500ms}") Duration retryBackoff,
+            @Value("${webpush.coalesce.window:2s}") Duration coalesceWindow,
+            @Value("${webpush.rate-limit.per-minute:6}") int ratePerMinute,
+            @Value("${webpush.rate-limit.burst:3}") int rateBurst) {
+        this.subscriptions = subscriptions;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoff = retryBackoff;
+        this.coalesceWindowMillis = coalesceWindow.toMillis();
+        this.rateLimiter = new TokenBucketRateLimiter(ratePerMinute, rateBurst);
+        this.collapsed = Counter.builder("webpush.notifications.collapsed")
+                .description("Notifications merged into a pending one with the same collapse key")
+                .register(meterRegistry);
+        for (Delivery outcome : Delivery.values()) {
+            outcomes.put(outcome, Counter.builder("webpush.notifications")
+                    .description("Notifications sent to push services")
+                    .tag("outcome", outcome.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+        // without a concurrency limit the deliveries in flight are still bounded
+        this.inFlight = new Semaphore(IN_FLIGHT_PER_SENDER * (maxConcurrency > 0 ? maxConcurrency : 256));
+        this.executor = new BackendExecutor(Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("webpush-", 0).factory()), maxConcurrency);
+        executor.bindTo(meterRegistry, "webpush.executor");
+        if (ratePerMinute > 0) {
+            scheduler.scheduleWithFixedDelay(rateLimiter::evictFull, 1, 1, TimeUnit.MINUTES);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+        broadcaster.shutdownNow();
+        executor.shutdownNow();
+    }
 
     /**
      * Initialize security and push service for initial get request.
@@ -58,31 +217,338 @@ public class WebPushService {
      */
     public record WebPushData(String url) implements Serializable {}
 
-    public void notifyAll(String title, String body, String url) {
-        endpointToSubscription.values().forEach(subscription -> {
-
-            WebPushOptions webPushOptions = new WebPushOptions(
-                    body,
-                    new WebPushData(url),
-                    LineAwesomeIconUrl.BELL.toString()
-            );
-            try {
-                webPush.sendNotification(subscription, new WebPushMessage(title, webPushOptions));
-            } catch (WebPushException e) {
-                getLogger().error(e.getMessage());
-            }
-        });
+    /**
+     * Sends a notification that opens the given url to all subscriptions.
+     * Notifications with the same title are collapsed, see
+     * {@link #notifyAll(WebPushMessage, String)}.
+     */
+    public CompletableFuture<BroadcastResult> notifyAll(String title, String body, String url) {
+        WebPushOptions webPushOptions = new WebPushOptions(
+                body,
+                new WebPushData(url),
+                LineAwesomeIconUrl.BELL.toString()
+        );
+        return notifyAll(new WebPushMessage(title, webPushOptions), title);
     }
 
     /**
      * Send a notification to all subscriptions.
+     * Notifications with the same title are collapsed, see
+     * {@link #notifyAll(WebPushMessage, String)}.
      *
      * @param title message title
      * @param body message body
      */
-    public void notifyAll(String title, String body) {
-        endpointToSubscription.values().forEach(subscription ->
-                webPush.sendNotification(subscription, new WebPushMessage(title, body)));
+    public CompletableFuture<BroadcastResult> notifyAll(String title, String body) {
+        return notifyAll(new WebPushMessage(title, body), title);
+    }
+
+    /**
+     * Sends the message to all subscriptions after the coalescing window
+     * {@code webpush.coalesce.window}. A message sent with the same
+     * collapse key within the window replaces the pending one, so the
+     * subscribers get only the latest instead of a burst of notifications.
+     * Returns immediately; the result is shared by all collapsed messages.
+     */
+    public CompletableFuture<BroadcastResult> notifyAll(WebPushMessage message, String collapseKey) {
+        return send("all", subscriptions::forEach, message, collapseKey);
+    }
+
+    /**
+     * Sends a notification to the subscriptions of the user, see
+     * {@link #store(WebPushSubscription, String, Set)}. Notifications with
+     * the same title are collapsed like in {@link #notifyAll(WebPushMessage, String)}.
+     */
+    public CompletableFuture<BroadcastResult> notifyUser(String user, String title, String body) {
+        return notifyUser(user, new WebPushMessage(title, body), title);
+    }
+
+    public CompletableFuture<BroadcastResult> notifyUser(String user, WebPushMessage message, String collapseKey) {
+        return send("user:" + user, indexed(() -> recipientIndex.endpointsOfUser(user)), message, collapseKey);
+    }
+
+    /**
+     * Sends a notification that opens the given url to the subscriptions of
+     * the topic, see {@link #store(WebPushSubscription, String, Set)}.
+     * Notifications with the same title are collapsed like in
+     * {@link #notifyAll(WebPushMessage, String)}.
+     */
+    public CompletableFuture<BroadcastResult> notifyTopic(String topic, String title, String body, String url) {
+        WebPushOptions webPushOptions = new WebPushOptions(
+                body,
+                new WebPushData(url),
+                LineAwesomeIconUrl.BELL.toString()
+        );
+        return notifyTopic(topic, new WebPushMessage(title, webPushOptions), title);
+    }
+
+    public CompletableFuture<BroadcastResult> notifyTopic(String topic, WebPushMessage message, String collapseKey) {
+        return send("topic:" + topic, indexed(() -> recipientIndex.endpointsOfTopic(topic)), message, collapseKey);
+    }
+
+    // the subscriptions of indexed endpoints, so that sending costs in proportion to their number;
+    // the endpoints are looked up when the notification is sent, after the coalescing window
+    private Recipients indexed(Supplier<Set<String>> endpoints) {
+        return action -> endpoints.get().forEach(endpoint -> {
+            WebPushSubscription subscription = subscriptions.get(endpoint);
+            if (subscription != null) {
+                action.accept(subscription);
+            }
+        });
+    }
+
+    private CompletableFuture<BroadcastResult> send(String target, Recipients recipients, WebPushMessage message,
+            String collapseKey) {
+        if (coalesceWindowMillis <= 0) {
+            return broadcast(message, recipients, collapseKey);
+        }
+        return enqueue(target + '\n' + collapseKey, message, recipients, collapseKey,
+                TimeUnit.MILLISECONDS.toNanos(coalesceWindowMillis)).copy();
+    }
+
+    /**
+     * Adds the message to the pending ones, sent after the delay. A message
+     * pending with the same key is replaced, keeping its due time and
+     * sharing its result.
+     */
+    private synchronized CompletableFuture<BroadcastResult> enqueue(String pendingKey, WebPushMessage message,
+            Recipients recipients, String collapseKey, long delayNanos) {
+        PendingBroadcast previous = pending.get(pendingKey);
+        long dueNanos;
+        CompletableFuture<BroadcastResult> result;
+        if (previous != null) {
+            collapsed.increment();
+            dueNanos = previous.dueNanos();
+            result = previous.result();
+        } else {
+            dueNanos = System.nanoTime() + delayNanos;
+            result = new CompletableFuture<>();
+        }
+        pending.put(pendingKey, new PendingBroadcast(message, recipients, collapseKey, dueNanos, result));
+        scheduleFlush(dueNanos);
+        return result;
+    }
+
+    // guarded by this; a flush that is already scheduled for an earlier time also reschedules this one
+    private void scheduleFlush(long dueNanos) {
+        if (flushScheduled && dueNanos - flushDueNanos >= 0) {
+            return;
+        }
+        flushScheduled = true;
+        flushDueNanos = dueNanos;
+        scheduler.schedule(this::flush, Math.max(0, dueNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    private void flush() {
+        List<PendingBroadcast> broadcasts = new ArrayList<>();
+        synchronized (this) {
+            flushScheduled = false;
+            long now = System.nanoTime();
+            long nextNanos = Long.MAX_VALUE;
+            for (Iterator<PendingBroadcast> iterator = pending.values().iterator(); iterator.hasNext(); ) {
+                PendingBroadcast broadcast = iterator.next();
+                long remainingNanos = broadcast.dueNanos() - now;
+                if (remainingNanos <= 0) {
+                    broadcasts.add(broadcast);
+                    iterator.remove();
+                } else {
+                    nextNanos = Math.min(nextNanos, remainingNanos);
+                }
+            }
+            if (!pending.isEmpty()) {
+                scheduleFlush(now + nextNanos);
+            }
+        }
+        for (PendingBroadcast broadcast : broadcasts) {
+            broadcast(broadcast.message(), broadcast.recipients(), broadcast.collapseKey())
+                    .whenComplete((result, error) -> {
+                        if (error != null) {
+                            broadcast.result().completeExceptionally(error);
+                        } else {
+                            broadcast.result().complete(result);
+                        }
+                    });
+        }
+    }
+
+    /**
+     * Sends the message to the recipients in parallel on virtual
+     * threads, at most {@code webpush.fanout.max-concurrency} at a time, so
+     * the caller, typically holding a session lock, is never blocked.
+     * The recipients are walked on a thread of their own, which only starts
+     * further deliveries while fewer than {@link #IN_FLIGHT_PER_SENDER}
+     * times that limit are in flight, so a broadcast to many subscriptions
+     * does not create a future and a task for each of them up front.
+     * Failures that may be temporary are retried with exponential backoff;
+     * waiting for a retry does not take up a place in the concurrency
+     * limit. Subscriptions the push service reports as gone are removed.
+     */
+    private CompletableFuture<BroadcastResult> broadcast(WebPushMessage message, Recipients recipients,
+            String collapseKey) {
+        Fanout fanout = new Fanout();
+        broadcaster.execute(() -> {
+            try {
+                recipients.forEach(subscription -> {
+                    try {
+                        inFlight.acquire();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new CancellationException("Interrupted while starting deliveries");
+                    }
+                    fanout.started();
+                    deliver(subscription, message, collapseKey).whenComplete((outcome, error) -> {
+                        inFlight.release();
+                        fanout.completed(error == null ? outcome : Delivery.FAILED);
+                    });
+                });
+                fanout.allStarted();
+            } catch (RuntimeException e) {
+                fanout.result.completeExceptionally(e);
+            }
+        });
+        return fanout.result;
+    }
+
+    /**
+     * Counts the outcomes of the deliveries of a broadcast and completes
+     * its result once the last one has completed.
+     */
+    private final class Fanout {
+
+        private final CompletableFuture<BroadcastResult> result = new CompletableFuture<>();
+        private final AtomicLongArray counts = new AtomicLongArray(Delivery.values().length);
+        // deliveries not completed yet, plus one until all have been started
+        private final AtomicInteger outstanding = new AtomicInteger(1);
+
+        void started() {
+            outstanding.incrementAndGet();
+        }
+
+        void completed(Delivery outcome) {
+            counts.incrementAndGet(outcome.ordinal());
+            countDown();
+        }
+
+        void allStarted() {
+            countDown();
+        }
+
+        private void countDown() {
+            if (outstanding.decrementAndGet() > 0) {
+                return;
+            }
+            BroadcastResult broadcast = new BroadcastResult(counts.get(Delivery.DELIVERED.ordinal()),
+                    counts.get(Delivery.PRUNED.ordinal()), counts.get(Delivery.THROTTLED.ordinal()),
+                    counts.get(Delivery.FAILED.ordinal()));
+            getLogger().info("Sent notification to {} subscriptions: {}", broadcast.delivered() + broadcast.pruned()
+                    + broadcast.throttled() + broadcast.failed(), broadcast);
+            result.complete(broadcast);
+        }
+    }
+
+    /**
+     * Sends the message unless the subscription was notified too often.
+     * Then it is queued with the pending broadcasts until the subscription
+     * may be notified again, replacing a throttled message with the same
+     * collapse key, so the subscription gets only the latest of them.
+     */
+    private CompletableFuture<Delivery> deliver(WebPushSubscription subscription, WebPushMessage message,
+            String collapseKey) {
+        String endpoint = subscription.endpoint();
+        String throttledKey = "endpoint:" + endpoint + '\n' + collapseKey;
+        CompletableFuture<Delivery> delivery;
+        // retries do not count against the rate limit, only notifications do
+        if (rateLimiter.tryAcquire(endpoint)) {
+            dropThrottled(throttledKey);
+            delivery = sendWithRetry(subscription, message, 1, retryBackoff.toMillis());
+        } else {
+            long delayNanos = Math.max(rateLimiter.nanosUntilAvailable(endpoint),
+                    TimeUnit.MILLISECONDS.toNanos(coalesceWindowMillis));
+            // looked up again when sent, in case it has been removed meanwhile
+            enqueue(throttledKey, message, indexed(() -> Set.of(endpoint)), collapseKey, delayNanos);
+            delivery = CompletableFuture.completedFuture(Delivery.THROTTLED);
+        }
+        return delivery.exceptionally(error -> {
+            getLogger().debug("Sending to {} was aborted", endpoint, error);
+            return Delivery.FAILED;
+        }).thenApply(outcome -> {
+            outcomes.get(outcome).increment();
+            return outcome;
+        });
+    }
+
+    // an older throttled message that a newer one with the same collapse key is sent instead of
+    private void dropThrottled(String throttledKey) {
+        synchronized (this) {
+            if (pending.isEmpty() || pending.remove(throttledKey) == null) {
+                return;
+            }
+        }
+        collapsed.increment();
+    }
+
+    private CompletableFuture<Delivery> sendWithRetry(WebPushSubscription subscription, WebPushMessage message,
+            int attempt, long backoffMillis) {
+        return executor.supply(() -> send(subscription, message)).thenCompose(status -> {
+            if (status >= 200 && status < 300) {
+                return CompletableFuture.completedFuture(Delivery.DELIVERED);
+            }
+            if (status == 404 || status == 410) {
+                // the subscription has expired or the user has unsubscribed
+                subscriptions.remove(subscription.endpoint());
+                recipientIndex.remove(subscription.endpoint());
+                return CompletableFuture.completedFuture(Delivery.PRUNED);
+            }
+            boolean temporary = status == -1 || status == 429 || status >= 500;
+            if (!temporary || attempt >= maxAttempts) {
+                getLogger().warn("Could not send notification to {}, status {}", subscription.endpoint(), status);
+                return CompletableFuture.completedFuture(Delivery.FAILED);
+            }
+            // the retry is scheduled instead of sleeping on a virtual thread that holds a permit,
+            // jitter spreads the retries of a large broadcast
+            long delayMillis = backoffMillis + ThreadLocalRandom.current().nextLong(backoffMillis / 2 + 1);
+            Executor delayed = CompletableFuture.delayedExecutor(delayMillis, TimeUnit.MILLISECONDS);
+            return CompletableFuture.runAsync(() -> {}, delayed)
+                    .thenCompose(ignored -> sendWithRetry(subscription, message, attempt + 1, backoffMillis * 2));
+        });
+    }
+
+    /**
+     * @return the HTTP status code, or -1 if the push service could not be reached
+     */
+    private int send(WebPushSubscription subscription, WebPushMessage message) {
+        try {
+            return sender.send(subscription, message);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while sending to " + subscription.endpoint());
+        } catch (Exception e) {
+            getLogger().debug("Sending to {} failed", subscription.endpoint(), e);
+            return -1;
+        }
+    }
+
+    /**
+     * Sends with the underlying push library instead of
+     * {@link WebPush#sendNotification}, which does not report the status
+     * code needed to detect expired subscriptions.
+     */
+    private int sendWithPushService(WebPushSubscription subscription, WebPushMessage message) throws Exception {
+        Notification notification = new Notification(subscription.endpoint(), subscription.keys().p256dh(),
+                subscription.keys().auth(), message.toJson().getBytes(StandardCharsets.UTF_8));
+        HttpResponse response = getPushService().send(notification);
+        EntityUtils.consumeQuietly(response.getEntity());
+        return response.getStatusLine().getStatusCode();
+    }
+
+    private synchronized PushService getPushService() throws GeneralSecurityException {
+        if (pushService == null) {
+            if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null) {
+                Security.addProvider(new BouncyCastleProvider());
+            }
+            pushService = new PushService(publicKey, privateKey, subject);
+        }
+        return pushService;
     }
 
     private Logger getLogger() {
@@ -90,25 +556,37 @@ public class WebPushService {
     }
 
     public void store(WebPushSubscription subscription) {
+        store(subscription, null, Set.of());
+    }
+
+    /**
+     * Stores the subscription and indexes it for {@link #notifyUser} and
+     * {@link #notifyTopic}.
+     *
+     * @param user user the subscription belongs to, or null if unknown
+     * @param topics topics the subscription is interested in
+     */
+    public void store(WebPushSubscription subscription, @Nullable String user, Set<String> topics) {
         getLogger().info("Subscribed to ", subscription.endpoint());
         /*
-         * Note, in a real world app you'll want to persist these
-         * in the backend. Also, you probably want to know which
-         * subscription belongs to which user to send custom messages
-         * for different users. In this demo, we'll just use
-         * endpoint URL as key to store subscriptions in memory.
+         * Subscriptions are kept by endpoint URL in the configured
+         * WebPushSubscriptionStore, persisted to a file by default.
+         * Users and topics are only indexed in memory; the views store
+         * the subscription of a client again when it reconnects.
          */
-        endpointToSubscription.put(subscription.endpoint(), subscription);
+        subscriptions.put(subscription);
+        recipientIndex.put(subscription.endpoint(), user, topics);
     }
 
 
     public void remove(WebPushSubscription subscription) {
         getLogger().info("Unsubscribed ", subscription.endpoint());
-        endpointToSubscription.remove(subscription.endpoint());
+        subscriptions.remove(subscription.endpoint());
+        recipientIndex.remove(subscription.endpoint());
     }
 
     public boolean isEmpty() {
-        return endpointToSubscription.isEmpty();
+        return subscriptions.isEmpty();
     }
 
 }
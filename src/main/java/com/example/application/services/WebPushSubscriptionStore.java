@@ -0,0 +1,42 @@
+package com.example.application.services;
+
+import com.vaadin.flow.server.webpush.WebPushSubscription;
+import java.util.function.Consumer;
+import org.springframework.lang.Nullable;
+
+/**
+ * Storage of the web push subscriptions, keyed by endpoint.
+ * <p>
+ * Implementations are safe for concurrent use, as subscriptions are added
+ * and removed from many sessions while notifications are sent. The
+ * implementation is chosen with {@code webpush.subscriptions.store}, see
+ * {@link WebPushSubscriptionStoreConfiguration}.
+ */
+public interface WebPushSubscriptionStore {
+
+    /**
+     * Adds the subscription, replacing any existing one with the same
+     * endpoint.
+     */
+    void put(WebPushSubscription subscription);
+
+    @Nullable
+    WebPushSubscription get(String endpoint);
+
+    /**
+     * @return whether a subscription with the endpoint existed
+     */
+    boolean remove(String endpoint);
+
+    /**
+     * Calls the action for every subscription. Subscriptions added or
+     * removed concurrently may or may not be included.
+     */
+    void forEach(Consumer<WebPushSubscription> action);
+
+    int size();
+
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+}
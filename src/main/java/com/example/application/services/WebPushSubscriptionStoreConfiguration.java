@@ -0,0 +1,33 @@
+package com.example.application.services;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class WebPushSubscriptionStoreConfiguration {
+
+    /**
+     * Subscriptions persisted to {@code webpush.subscriptions.file}, the
+     * default.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "webpush.subscriptions.store", havingValue = "file", matchIfMissing = true)
+    WebPushSubscriptionStore fileWebPushSubscriptionStore(
+            @Value("${webpush.subscriptions.file:data/webpush-subscriptions.log}") Path file) throws IOException {
+        return new FileWebPushSubscriptionStore(file);
+    }
+
+    /**
+     * Subscriptions only kept in memory and lost on restart, with
+     * {@code webpush.subscriptions.store=memory}.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "webpush.subscriptions.store", havingValue = "memory")
+    WebPushSubscriptionStore inMemoryWebPushSubscriptionStore() {
+        return new InMemoryWebPushSubscriptionStore();
+    }
+}
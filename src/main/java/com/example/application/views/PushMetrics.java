@@ -0,0 +1,104 @@
+package com.example.application.views;
+
+import com.vaadin.flow.component.HasElement;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.server.Command;
+import com.vaadin.flow.server.ServiceInitEvent;
+import com.vaadin.flow.server.VaadinServiceInitListener;
+import com.vaadin.flow.server.VaadinSession;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.springframework.stereotype.Component;
+
+/**
+ * Micrometer metrics of the server push channel.
+ * <ul>
+ * <li>{@code push.access.pending}: {@code UI.access} tasks waiting for a
+ * session lock, over all sessions</li>
+ * <li>{@code push.access.server.latency}: time from
+ * {@link #access(UI, Command)} until the resulting changes are collected
+ * for the response, tagged with the view shown in the UI. This is the
+ * server side only: waiting for the session lock, running the command
+ * and the rest of the session's pending work. Writing the message is
+ * covered by {@code push.message.size}.</li>
+ * <li>{@code push.message.size}: bytes per push message, tagged with the
+ * transport</li>
+ * <li>{@code push.connections}: connection requests per transport, to see
+ * how often clients fall back from websocket to long polling</li>
+ * </ul>
+ * The message and connection metrics are recorded by
+ * {@link PushTrafficInterceptor}. Views are used as tags instead of
+ * individual UIs to keep the number of time series bounded.
+ */
+@Component
+public class PushMetrics implements VaadinServiceInitListener {
+
+    private final MeterRegistry registry;
+    private final Set<VaadinSession> sessions = ConcurrentHashMap.newKeySet();
+
+    public PushMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        Gauge.builder("push.access.pending", sessions, PushMetrics::pendingAccessTasks)
+                .description("UI.access tasks waiting for the session lock")
+                .register(registry);
+    }
+
+    @Override
+    public void serviceInit(ServiceInitEvent event) {
+        event.getSource().addSessionInitListener(sessionInit -> sessions.add(sessionInit.getSession()));
+        event.getSource().addSessionDestroyListener(sessionDestroy -> sessions.remove(sessionDestroy.getSession()));
+    }
+
+    /**
+     * Same as {@link UI#access(Command)}, but records the time until the
+     * changes made by the command are ready to be sent to the client.
+     */
+    public Future<Void> access(UI ui, Command command) {
+        long start = System.nanoTime();
+        return ui.access(() -> {
+            command.execute();
+            String view = viewName(ui);
+            ui.beforeClientResponse(ui, context -> Timer.builder("push.access.server.latency")
+                    .description("Time from UI.access until the changes are collected for the client")
+                    .tag("view", view)
+                    .register(registry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        });
+    }
+
+    void recordMessage(String transport, int bytes) {
+        DistributionSummary.builder("push.message.size")
+                .description("Size of push messages")
+                .baseUnit("bytes")
+                .tag("transport", transport)
+                .register(registry)
+                .record(bytes);
+    }
+
+    void recordConnection(String transport) {
+        Counter.builder("push.connections")
+                .description("Push connection requests, every poll when long polling")
+                .tag("transport", transport)
+                .register(registry)
+                .increment();
+    }
+
+    private static double pendingAccessTasks(Set<VaadinSession> sessions) {
+        return sessions.stream()
+                .mapToInt(session -> session.getPendingAccessQueue().size())
+                .sum();
+    }
+
+    private static String viewName(UI ui) {
+        List<HasElement> chain = ui.getInternals().getActiveRouterTargetsChain();
+        return chain.isEmpty() ? "none" : chain.get(0).getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.application.views;
+
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.UIDetachedException;
+import com.vaadin.flow.server.Command;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Coalesces UI updates from background threads into fewer pushes.
+ * <p>
+ * Every {@link UI#access(Command)} ends with its own push to the client.
+ * Commands given to {@link #access(UI, Command)} are instead collected per
+ * UI and run together in a single {@code access} once the interval has
+ * passed since the first of them, so a burst of background results reaches
+ * the client as one message and each UI is pushed to at most once per
+ * interval.
+ */
+@Component
+public class PushThrottler {
+
+    private final PushMetrics pushMetrics;
+    private final long intervalMillis;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "push-throttler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // commands waiting for the next flush of each UI, modified only inside compute and remove
+    private final Map<UI, List<Command>> pending = new ConcurrentHashMap<>();
+
+    public PushThrottler(PushMetrics pushMetrics, @Value("${push.throttle.interval:100ms}") Duration interval) {
+        this.pushMetrics = pushMetrics;
+        this.intervalMillis = interval.toMillis();
+    }
+
+    /**
+     * Runs the command with the session of the UI locked, together with the
+     * other commands for the same UI that arrive within the interval. Like
+     * {@link UI#access(Command)} it can be called from any thread; commands
+     * for a UI that has been detached in the meantime are dropped.
+     */
+    public void access(UI ui, Command command) {
+        boolean[] first = new boolean[1];
+        pending.compute(ui, (key, commands) -> {
+            if (commands == null) {
+                commands = new ArrayList<>();
+                first[0] = true;
+            }
+            commands.add(command);
+            return commands;
+        });
+        if (first[0]) {
+            executor.schedule(() -> flush(ui), intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void flush(UI ui) {
+        List<Command> commands = pending.remove(ui);
+        if (commands == null) {
+            return;
+        }
+        try {
+            pushMetrics.access(ui, () -> commands.forEach(Command::execute));
+        } catch (UIDetachedException e) {
+            getLogger().debug("Dropped {} updates for a detached UI", commands.size());
+        }
+    }
+
+    private Logger getLogger() {
+        return LoggerFactory.getLogger(getClass());
+    }
+}
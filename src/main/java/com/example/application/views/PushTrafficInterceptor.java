@@ -0,0 +1,67 @@
+package com.example.application.views;
+
+import org.atmosphere.cpr.Action;
+import org.atmosphere.cpr.AsyncIOInterceptor;
+import org.atmosphere.cpr.AsyncIOInterceptorAdapter;
+import org.atmosphere.cpr.AsyncIOWriter;
+import org.atmosphere.cpr.AtmosphereConfig;
+import org.atmosphere.cpr.AtmosphereInterceptorAdapter;
+import org.atmosphere.cpr.AtmosphereInterceptorWriter;
+import org.atmosphere.cpr.AtmosphereResource;
+import org.atmosphere.cpr.AtmosphereResponse;
+import org.springframework.web.context.support.WebApplicationContextUtils;
+
+/**
+ * Atmosphere interceptor that reports the push traffic to
+ * {@link PushMetrics}.
+ * <p>
+ * Atmosphere creates the interceptor itself, so it is registered with the
+ * {@code org.atmosphere.cpr.AtmosphereInterceptor} servlet context
+ * parameter in {@code application.properties} and looks up
+ * {@link PushMetrics} in the application context.
+ */
+public class PushTrafficInterceptor extends AtmosphereInterceptorAdapter {
+
+    private PushMetrics metrics;
+
+    // a single instance, so adding it to a resource's writer again does not add another filter
+    private final AsyncIOInterceptor messageSizes = new AsyncIOInterceptorAdapter() {
+        @Override
+        public byte[] transformPayload(AtmosphereResponse response, byte[] responseDraft, byte[] data) {
+            AtmosphereResource resource = response.resource();
+            metrics.recordMessage(resource == null ? "unknown" : transport(resource), responseDraft.length);
+            return responseDraft;
+        }
+    };
+
+    @Override
+    public void configure(AtmosphereConfig config) {
+        super.configure(config);
+        metrics = WebApplicationContextUtils.getRequiredWebApplicationContext(config.getServletContext())
+                .getBean(PushMetrics.class);
+    }
+
+    @Override
+    public Action inspect(AtmosphereResource resource) {
+        Action action = super.inspect(resource);
+        String transport = transport(resource);
+        if ("GET".equals(resource.getRequest().getMethod())) {
+            metrics.recordConnection(transport);
+        }
+        AsyncIOWriter writer = resource.getResponse().getAsyncIOWriter();
+        if (writer instanceof AtmosphereInterceptorWriter interceptorWriter) {
+            // inspect runs for every request of a resource, the writer keeps each filter only once
+            interceptorWriter.interceptor(messageSizes);
+        }
+        return action;
+    }
+
+    private static String transport(AtmosphereResource resource) {
+        return resource.transport().name().toLowerCase().replace('_', '-');
+    }
+
+    @Override
+    public String toString() {
+        return "Push traffic metrics";
+    }
+}
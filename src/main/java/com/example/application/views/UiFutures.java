@@ -0,0 +1,67 @@
+package com.example.application.views;
+
+import com.vaadin.flow.component.Component;
+import com.vaadin.flow.component.ComponentUtil;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ties asynchronous backend calls to the lifecycle of the view that shows
+ * their results.
+ */
+public final class UiFutures {
+
+    private UiFutures() {
+    }
+
+    /**
+     * Cancels the future when the component is detached, e.g. because the
+     * user navigated away or closed the tab, so that nobody keeps working on
+     * a result that can no longer be shown.
+     * <p>
+     * Pass the future returned by the backend, not one derived from it with
+     * {@code thenAccept} or similar: cancelling a dependent future does not
+     * cancel the future it depends on.
+     * <p>
+     * Must be called with the session locked, like any change to the
+     * component.
+     *
+     * @return the given future, for chaining
+     */
+    public static <T> CompletableFuture<T> cancelOnDetach(Component component, CompletableFuture<T> future) {
+        Set<CompletableFuture<?>> pending = pendingFutures(component).futures;
+        pending.add(future);
+        // completed futures leave the set on the completing thread, without a UI access of their own
+        future.whenComplete((result, error) -> pending.remove(future));
+        return future;
+    }
+
+    private static PendingFutures pendingFutures(Component component) {
+        PendingFutures pending = ComponentUtil.getData(component, PendingFutures.class);
+        if (pending == null) {
+            pending = new PendingFutures();
+            ComponentUtil.setData(component, PendingFutures.class, pending);
+            // one listener per component, for all of its futures
+            PendingFutures detached = pending;
+            component.addDetachListener(event -> detached.cancelAll());
+        }
+        return pending;
+    }
+
+    /**
+     * The futures of a component that have not completed yet.
+     */
+    private static final class PendingFutures {
+
+        private final Set<CompletableFuture<?>> futures = ConcurrentHashMap.newKeySet();
+
+        void cancelAll() {
+            List<CompletableFuture<?>> cancelled = new ArrayList<>(futures);
+            futures.clear();
+            cancelled.forEach(future -> future.cancel(true));
+        }
+    }
+}
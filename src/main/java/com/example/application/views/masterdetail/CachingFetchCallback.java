@@ -0,0 +1,91 @@
+package com.example.application.views.masterdetail;
+
+import com.vaadin.flow.data.provider.CallbackDataProvider;
+import com.vaadin.flow.data.provider.Query;
+import com.vaadin.flow.data.provider.QuerySortOrder;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Fetch callback that keeps the most recently fetched pages of a lazy grid
+ * and reads the following page ahead in the background.
+ * <p>
+ * An instance belongs to a single grid and thus to a single UI. Pages are
+ * evicted least recently used first. When the user scrolls on, the next
+ * page usually is already loaded and the request is answered without a
+ * database round-trip; scrolling back is served from the cache as well.
+ * Call {@link #invalidate()} before refreshing the grid.
+ *
+ * @param <T> item type
+ */
+public class CachingFetchCallback<T> implements CallbackDataProvider.FetchCallback<T, Void> {
+
+    private record PageKey(int offset, int limit, String sortOrders) {}
+
+    private final CallbackDataProvider.FetchCallback<T, Void> delegate;
+    private final Executor executor;
+    private final Map<PageKey, CompletableFuture<List<T>>> pages;
+
+    public CachingFetchCallback(CallbackDataProvider.FetchCallback<T, Void> delegate, Executor executor,
+            int maxPages) {
+        this.delegate = delegate;
+        this.executor = executor;
+        this.pages = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<PageKey, CompletableFuture<List<T>>> eldest) {
+                return size() > maxPages;
+            }
+        });
+    }
+
+    @Override
+    public Stream<T> fetch(Query<T, Void> query) {
+        PageKey key = new PageKey(query.getOffset(), query.getLimit(), toString(query.getSortOrders()));
+        CompletableFuture<List<T>> page = pages.get(key);
+        List<T> items = page == null ? null : page.exceptionally(e -> null).join();
+        if (items == null) {
+            items = load(query);
+            pages.put(key, CompletableFuture.completedFuture(items));
+        }
+        if (items.size() == query.getLimit()) {
+            readAhead(query);
+        }
+        return items.stream();
+    }
+
+    /**
+     * Drops all cached pages, e.g. after the underlying data has changed,
+     * and the keyset positions of a {@link KeysetFetchCallback} delegate.
+     */
+    public void invalidate() {
+        pages.clear();
+        if (delegate instanceof KeysetFetchCallback<T> keyset) {
+            keyset.invalidate();
+        }
+    }
+
+    private void readAhead(Query<T, Void> query) {
+        Query<T, Void> next = new Query<>(query.getOffset() + query.getLimit(), query.getLimit(),
+                query.getSortOrders(), query.getInMemorySorting(), null);
+        PageKey key = new PageKey(next.getOffset(), next.getLimit(), toString(next.getSortOrders()));
+        pages.computeIfAbsent(key, k -> CompletableFuture.supplyAsync(() -> load(next), executor));
+    }
+
+    private List<T> load(Query<T, Void> query) {
+        try (Stream<T> items = delegate.fetch(query)) {
+            return items.toList();
+        }
+    }
+
+    private static String toString(List<QuerySortOrder> sortOrders) {
+        return sortOrders.stream()
+                .map(order -> order.getSorted() + ":" + order.getDirection())
+                .collect(Collectors.joining(","));
+    }
+}
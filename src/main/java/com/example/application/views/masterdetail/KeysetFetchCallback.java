@@ -0,0 +1,134 @@
+package com.example.application.views.masterdetail;
+
+import com.vaadin.flow.data.provider.CallbackDataProvider;
+import com.vaadin.flow.data.provider.Query;
+import com.vaadin.flow.spring.data.VaadinSpringDataHelpers;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+
+/**
+ * Fetch callback for lazy grids that loads data with keyset (seek) queries
+ * instead of {@code OFFSET} queries.
+ * <p>
+ * The keyset position at the end of every loaded window is remembered by
+ * its offset. A fetch continues from the closest known position at or
+ * before the requested offset, so sequential scrolling never skips rows in
+ * the database and the latency stays flat however deep the user scrolls.
+ * Positions are dropped when the sort order changes, and must be dropped
+ * with {@link #invalidate()} when rows are inserted or deleted, as they
+ * shift the offsets.
+ * <p>
+ * A jump far beyond the last known position, e.g. by dragging the
+ * scrollbar, would have to load all rows in between; such fetches are
+ * delegated to an {@code OFFSET} query instead. The position after the
+ * loaded page is then built from the last item, so the following pages
+ * are keyset fetches again.
+ * <p>
+ * Keyset predicates skip rows with {@code null} in a sort column, so only
+ * sorts by the given keyset properties, which must never be {@code null},
+ * use keyset fetches. Other sorts always use {@code OFFSET} queries.
+ *
+ * @param <T> item type
+ */
+public class KeysetFetchCallback<T> implements CallbackDataProvider.FetchCallback<T, Void> {
+
+    @FunctionalInterface
+    public interface WindowLoader<T> {
+        Window<T> load(ScrollPosition position, Sort sort, int limit);
+    }
+
+    // rows a keyset fetch may skip before an OFFSET query is used instead
+    static final int MAX_SKIP = 500;
+
+    private static final String ID = "id";
+
+    private final WindowLoader<T> loader;
+    private final CallbackDataProvider.FetchCallback<T, Void> offsetLoader;
+    private final Function<T, Map<String, Object>> keyValues;
+    private final Set<String> keysetProperties;
+    private final NavigableMap<Integer, ScrollPosition> positions = new ConcurrentSkipListMap<>();
+    private volatile Sort sort;
+
+    /**
+     * @param loader loads the windows of keyset fetches
+     * @param offsetLoader loads pages with an {@code OFFSET} query, for far jumps
+     * @param keyValues values of the keyset properties and the id of an item, by property name
+     * @param keysetProperties non-null properties that sorts may use with keyset fetches, besides the id
+     */
+    public KeysetFetchCallback(WindowLoader<T> loader, CallbackDataProvider.FetchCallback<T, Void> offsetLoader,
+            Function<T, Map<String, Object>> keyValues, Set<String> keysetProperties) {
+        this.loader = loader;
+        this.offsetLoader = offsetLoader;
+        this.keyValues = keyValues;
+        this.keysetProperties = keysetProperties;
+        reset(Sort.unsorted());
+    }
+
+    @Override
+    public Stream<T> fetch(Query<T, Void> query) {
+        Sort requestedSort = VaadinSpringDataHelpers.toSpringDataSort(query);
+        if (!requestedSort.stream().allMatch(order -> isKeysetProperty(order.getProperty()))) {
+            return offsetLoader.fetch(query);
+        }
+        if (!requestedSort.equals(sort)) {
+            reset(requestedSort);
+        }
+        int offset = query.getOffset();
+        Map.Entry<Integer, ScrollPosition> start = positions.floorEntry(offset);
+        int skip = offset - start.getKey();
+        if (skip > MAX_SKIP) {
+            List<T> items = offsetLoader.fetch(query).toList();
+            if (!items.isEmpty()) {
+                // the following pages seek from here instead of being OFFSET queries as well
+                positions.put(offset + items.size(), ScrollPosition.forward(keyset(items.get(items.size() - 1), requestedSort)));
+            }
+            return items.stream();
+        }
+
+        Window<T> window = loader.load(start.getValue(), requestedSort, skip + query.getLimit());
+        List<T> items = window.getContent();
+        if (skip > 0 && items.size() >= skip) {
+            positions.put(offset, window.positionAt(skip - 1));
+        }
+        if (items.size() > skip) {
+            positions.put(start.getKey() + items.size(), window.positionAt(items.size() - 1));
+        }
+        return items.stream().skip(skip);
+    }
+
+    /**
+     * Drops all known positions, to be called whenever rows have been
+     * inserted or deleted.
+     */
+    public void invalidate() {
+        reset(sort);
+    }
+
+    private boolean isKeysetProperty(String property) {
+        return ID.equals(property) || keysetProperties.contains(property);
+    }
+
+    // the values of the sort properties and the id tiebreaker the loader appends
+    private Map<String, Object> keyset(T item, Sort sort) {
+        Map<String, Object> values = keyValues.apply(item);
+        Map<String, Object> keyset = new LinkedHashMap<>();
+        sort.forEach(order -> keyset.put(order.getProperty(), values.get(order.getProperty())));
+        keyset.put(ID, values.get(ID));
+        return keyset;
+    }
+
+    private synchronized void reset(Sort sort) {
+        positions.clear();
+        positions.put(0, ScrollPosition.keyset());
+        this.sort = sort;
+    }
+}
@@ -1,7 +1,15 @@
 package com.example.application.views.masterdetail;
 
 import com.example.application.data.SamplePerson;
+import com.example.application.data.SamplePersonRow;
+import com.example.application.services.SamplePersonChangeBroadcaster;
+import com.example.application.services.SamplePersonChanges;
+import com.example.application.services.SamplePersonSearchIndex;
 import com.example.application.services.SamplePersonService;
+import com.example.application.services.SamplePersonService.ExportFormat;
+import com.example.application.views.PushMetrics;
+import com.vaadin.flow.component.AttachEvent;
+import com.vaadin.flow.component.DetachEvent;
 import com.vaadin.flow.component.UI;
 import com.vaadin.flow.component.button.Button;
 import com.vaadin.flow.component.button.ButtonVariant;
@@ -11,24 +19,37 @@ import com.vaadin.flow.component.dependency.Uses;
 import com.vaadin.flow.component.formlayout.FormLayout;
 import com.vaadin.flow.component.grid.Grid;
 import com.vaadin.flow.component.grid.GridVariant;
+import com.vaadin.flow.component.grid.dataview.GridLazyDataView;
+import com.vaadin.flow.component.html.Anchor;
 import com.vaadin.flow.component.html.Div;
+import com.vaadin.flow.component.html.Span;
 import com.vaadin.flow.component.icon.Icon;
 import com.vaadin.flow.component.notification.Notification;
 import com.vaadin.flow.component.notification.Notification.Position;
 import com.vaadin.flow.component.notification.NotificationVariant;
+import com.vaadin.flow.component.orderedlayout.FlexComponent;
 import com.vaadin.flow.component.orderedlayout.HorizontalLayout;
 import com.vaadin.flow.component.splitlayout.SplitLayout;
 import com.vaadin.flow.component.textfield.TextField;
 import com.vaadin.flow.data.binder.BeanValidationBinder;
 import com.vaadin.flow.data.binder.ValidationException;
+import com.vaadin.flow.data.provider.CallbackDataProvider;
+import com.vaadin.flow.data.value.ValueChangeMode;
 import com.vaadin.flow.data.renderer.LitRenderer;
 import com.vaadin.flow.router.BeforeEnterEvent;
 import com.vaadin.flow.router.BeforeEnterObserver;
 import com.vaadin.flow.router.Menu;
 import com.vaadin.flow.router.PageTitle;
 import com.vaadin.flow.router.Route;
+import com.vaadin.flow.server.StreamResource;
+import com.vaadin.flow.shared.Registration;
 import com.vaadin.flow.spring.data.VaadinSpringDataHelpers;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
 import java.util.Optional;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.vaadin.lineawesome.LineAwesomeIconUrl;
 
@@ -40,8 +61,12 @@ public class MasterDetailView extends Div implements BeforeEnterObserver {
 
     private final String SAMPLEPERSON_ID = "samplePersonID";
     private final String SAMPLEPERSON_EDIT_ROUTE_TEMPLATE = "master-detail/%s/edit";
+    private static final int MAX_SEARCH_RESULTS = 1000;
+    private static final int MAX_CACHED_PAGES = 20;
 
-    private final Grid<SamplePerson> grid = new Grid<>(SamplePerson.class, false);
+    private final Grid<SamplePersonRow> grid = new Grid<>(SamplePersonRow.class, false);
+    private final TextField search = new TextField();
+    private final Span rowCount = new Span();
 
     private TextField firstName;
     private TextField lastName;
@@ -60,9 +85,18 @@ public class MasterDetailView extends Div implements BeforeEnterObserver {
     private SamplePerson samplePerson;
 
     private final SamplePersonService samplePersonService;
-
-    public MasterDetailView(SamplePersonService samplePersonService) {
+    private final SamplePersonChangeBroadcaster changeBroadcaster;
+    private final Executor readAheadExecutor;
+    private final PushMetrics pushMetrics;
+    private CachingFetchCallback<SamplePersonRow> pageCache;
+    private Registration changeRegistration;
+
+    public MasterDetailView(SamplePersonService samplePersonService, SamplePersonChangeBroadcaster changeBroadcaster,
+            @Qualifier("applicationTaskExecutor") Executor readAheadExecutor, PushMetrics pushMetrics) {
         this.samplePersonService = samplePersonService;
+        this.changeBroadcaster = changeBroadcaster;
+        this.readAheadExecutor = readAheadExecutor;
+        this.pushMetrics = pushMetrics;
         addClassNames("master-detail-view");
 
         // Create UI
@@ -81,7 +115,7 @@ public class MasterDetailView extends Div implements BeforeEnterObserver {
         grid.addColumn("dateOfBirth").setAutoWidth(true);
         grid.addColumn("occupation").setAutoWidth(true);
         grid.addColumn("role").setAutoWidth(true);
-        LitRenderer<SamplePerson> importantRenderer = LitRenderer.<SamplePerson>of(
+        LitRenderer<SamplePersonRow> importantRenderer = LitRenderer.<SamplePersonRow>of(
                 "<vaadin-icon icon='vaadin:${item.icon}' style='width: var(--lumo-icon-size-s); height: var(--lumo-icon-size-s); color: ${item.color};'></vaadin-icon>")
                 .withProperty("icon", important -> important.isImportant() ? "check" : "minus").withProperty("color",
                         important -> important.isImportant()
@@ -90,7 +124,7 @@ public class MasterDetailView extends Div implements BeforeEnterObserver {
 
         grid.addColumn(importantRenderer).setHeader("Important").setAutoWidth(true);
 
-        grid.setItems(query -> samplePersonService.list(VaadinSpringDataHelpers.toSpringPageRequest(query)).stream());
+        setGridItems("");
         grid.addThemeVariants(GridVariant.LUMO_NO_BORDER);
 
         // when a row is selected or deselected, populate form
@@ -123,7 +157,8 @@ public class MasterDetailView extends Div implements BeforeEnterObserver {
                 binder.writeBean(this.samplePerson);
                 samplePersonService.save(this.samplePerson);
                 clearForm();
-                refreshGrid();
+                // the grid is refreshed when the change comes back from the broadcaster, like in other sessions
+                grid.select(null);
                 Notification.show("Data updated");
                 UI.getCurrent().navigate(MasterDetailView.class);
             } catch (ObjectOptimisticLockingFailureException exception) {
@@ -137,6 +172,19 @@ public class MasterDetailView extends Div implements BeforeEnterObserver {
         });
     }
 
+    @Override
+    protected void onAttach(AttachEvent attachEvent) {
+        UI ui = attachEvent.getUI();
+        // keep the grid current when people are changed, in this session or others
+        changeRegistration = changeBroadcaster.register(changes -> pushMetrics.access(ui, () -> applyChanges(changes)));
+    }
+
+    @Override
+    protected void onDetach(DetachEvent detachEvent) {
+        changeRegistration.remove();
+        changeRegistration = null;
+    }
+
     @Override
     public void beforeEnter(BeforeEnterEvent event) {
         Optional<Long> samplePersonId = event.getRouteParameters().get(SAMPLEPERSON_ID).map(Long::parseLong);
@@ -194,14 +242,82 @@ public class MasterDetailView extends Div implements BeforeEnterObserver {
         Div wrapper = new Div();
         wrapper.setClassName("grid-wrapper");
         splitLayout.addToPrimary(wrapper);
-        wrapper.add(grid);
+
+        search.setPlaceholder("Search name, email or occupation");
+        search.setPrefixComponent(new Icon("lumo", "search"));
+        search.setClearButtonVisible(true);
+        search.setValueChangeMode(ValueChangeMode.LAZY);
+        search.addValueChangeListener(e -> setGridItems(e.getValue()));
+
+        HorizontalLayout toolbar = new HorizontalLayout(search, rowCount, createExportLink(ExportFormat.CSV),
+                createExportLink(ExportFormat.JSON));
+        toolbar.setClassName("toolbar");
+        toolbar.setWidthFull();
+        toolbar.setDefaultVerticalComponentAlignment(FlexComponent.Alignment.CENTER);
+        wrapper.add(toolbar, grid);
+    }
+
+    private Anchor createExportLink(ExportFormat format) {
+        // the export is written straight to the response, without holding the session lock
+        StreamResource resource = new StreamResource("people." + format.getFileExtension(),
+                (out, session) -> samplePersonService.export(format, out));
+        resource.setContentType(format.getContentType());
+        Anchor link = new Anchor(resource, "Export " + format.name());
+        link.getElement().setAttribute("download", true);
+        return link;
+    }
+
+    private void setGridItems(String searchText) {
+        CallbackDataProvider.FetchCallback<SamplePersonRow, Void> fetchCallback;
+        List<Long> ids = null;
+        // shorter texts would match large parts of the data, they show all rows instead
+        if (searchText.trim().length() < SamplePersonSearchIndex.MIN_QUERY_LENGTH) {
+            // the grid only shows read-only rows, the full entity is loaded when a row is opened for editing
+            // the sortable columns may all be null, e.g. after an import, so only the
+            // default order by id uses keyset fetches and sorted grids use OFFSET queries
+            fetchCallback = new KeysetFetchCallback<SamplePersonRow>(samplePersonService::listRows,
+                    query -> samplePersonService.listRowSlice(VaadinSpringDataHelpers.toSpringPageRequest(query))
+                            .stream(),
+                    row -> Map.of("id", row.getId()), Set.of());
+        } else {
+            // matching ids come from the in-memory search index, best first, only the rows are paged from the database
+            ids = samplePersonService.search(searchText, MAX_SEARCH_RESULTS);
+            List<Long> matches = ids;
+            fetchCallback = query -> samplePersonService
+                    .listRows(matches, VaadinSpringDataHelpers.toSpringPageRequest(query)).stream();
+        }
+        pageCache = new CachingFetchCallback<>(fetchCallback, readAheadExecutor, MAX_CACHED_PAGES);
+        GridLazyDataView<SamplePersonRow> dataView;
+        if (ids == null) {
+            // the estimate sizes the scrollbar without counting all rows, the grid adjusts it while scrolling
+            int estimate = samplePersonService.estimateCount();
+            dataView = grid.setItems(pageCache);
+            dataView.setItemCountEstimate(Math.max(1, estimate));
+            rowCount.setText("About " + estimate + " people");
+        } else {
+            int matchCount = ids.size();
+            dataView = grid.setItems(pageCache, query -> matchCount);
+            rowCount.setText(matchCount + " matches");
+        }
+        dataView.setIdentifierProvider(SamplePersonRow::getId);
     }
 
     private void refreshGrid() {
         grid.select(null);
+        pageCache.invalidate();
         grid.getDataProvider().refreshAll();
     }
 
+    private void applyChanges(SamplePersonChanges changes) {
+        pageCache.invalidate();
+        if (changes.isStructural()) {
+            grid.getDataProvider().refreshAll();
+        } else {
+            // only re-render the changed rows, if they are currently loaded in the grid
+            changes.updated().forEach(grid.getDataProvider()::refreshItem);
+        }
+    }
+
     private void clearForm() {
         populateForm(null);
     }
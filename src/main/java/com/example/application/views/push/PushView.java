@@ -1,6 +1,8 @@
 package com.example.application.views.push;
 
 import com.example.application.services.BackendService;
+import com.example.application.views.PushThrottler;
+import com.example.application.views.UiFutures;
 import com.vaadin.flow.component.UI;
 import com.vaadin.flow.component.button.Button;
 import com.vaadin.flow.component.button.ButtonVariant;
@@ -21,7 +23,7 @@ import org.vaadin.lineawesome.LineAwesomeIconUrl;
 public class PushView extends VerticalLayout {
 
 
-    public PushView(BackendService backendService) {
+    public PushView(BackendService backendService, PushThrottler pushThrottler) {
 
         var button = new Button("Start long-running task");
         button.addThemeVariants(ButtonVariant.LUMO_PRIMARY);
@@ -42,12 +44,14 @@ public class PushView extends VerticalLayout {
             //add(new Paragraph(result));
 
             event.getSource().getUI().ifPresent(ui -> {
-                //call async services that returns a CompletableFuture
-                backendService.fetchSlowlyAsync()
+                //call async services that returns a CompletableFuture,
+                //cancelled when the user leaves the view before it completes
+                UiFutures.cancelOnDetach(this, backendService.fetchSlowlyAsync())
                     //invoke code after return
                     .thenAccept(result -> {
-                        //access ui instance and add component
-                        ui.access(() -> {
+                        //access ui instance and add component, results completing
+                        //close together are pushed to the client as one message
+                        pushThrottler.access(ui, () -> {
                             add(new Paragraph(result));
                         });
                     });
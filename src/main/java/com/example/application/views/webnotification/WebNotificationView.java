@@ -2,8 +2,13 @@ package com.example.application.views.webnotification;
 
 import com.example.application.services.BackendService;
 import com.example.application.services.BackendService.SalesData;
+import com.example.application.services.SalesReportNotifier;
+import com.example.application.services.SalesSnapshotService;
 import com.example.application.services.WebPushService;
+import com.example.application.views.PushMetrics;
+import com.example.application.views.UiFutures;
 import com.vaadin.flow.component.AttachEvent;
+import com.vaadin.flow.component.DetachEvent;
 import com.vaadin.flow.component.UI;
 import com.vaadin.flow.component.Unit;
 import com.vaadin.flow.component.button.Button;
@@ -11,22 +16,28 @@ import com.vaadin.flow.component.button.ButtonVariant;
 import com.vaadin.flow.component.checkbox.Checkbox;
 import com.vaadin.flow.component.grid.ColumnTextAlign;
 import com.vaadin.flow.component.grid.Grid;
+import com.vaadin.flow.component.grid.dataview.GridListDataView;
 import com.vaadin.flow.component.html.Div;
 import com.vaadin.flow.component.orderedlayout.HorizontalLayout;
 import com.vaadin.flow.component.orderedlayout.VerticalLayout;
 import com.vaadin.flow.component.progressbar.ProgressBar;
+import com.vaadin.flow.component.textfield.IntegerField;
 import com.vaadin.flow.data.renderer.LitRenderer;
 import com.vaadin.flow.router.Menu;
 import com.vaadin.flow.router.PageTitle;
 import com.vaadin.flow.router.Route;
 import com.vaadin.flow.router.RouteAlias;
 import com.vaadin.flow.server.webpush.WebPush;
+import com.vaadin.flow.server.webpush.WebPushSubscription;
+import com.vaadin.flow.shared.Registration;
 import org.vaadin.lineawesome.LineAwesomeIconUrl;
 
 import java.text.NumberFormat;
 import java.time.Month;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
 
 @PageTitle("Web Push Notification")
 @Menu(icon = LineAwesomeIconUrl.ARROW_ALT_CIRCLE_UP_SOLID, title = "Web Notification", order = 5)
@@ -35,12 +46,24 @@ public class WebNotificationView extends VerticalLayout {
 
     private final WebPush webpush;
     private final WebPushService webPushService;
+    private final SalesSnapshotService salesSnapshotService;
+    private final PushMetrics pushMetrics;
+
+    private static final int STREAM_CHUNK_SIZE = 20;
+
+    private final Grid<SalesData> grid = new Grid<>();
+    private final Grid<SalesData> streamGrid = new Grid<>();
+    private Registration snapshotRegistration;
 
     private final Checkbox subscribed;
+    private final Checkbox salesReports;
     private final ProgressBar progressBar = new ProgressBar();
 
     private final Div content = new Div();
 
+    // NumberFormat is not thread-safe, but the renderers of this view only run under the session lock
+    private final NumberFormat currencyFormat = NumberFormat.getCurrencyInstance(Locale.of("fi", "FI"));
+
     /***
      * The entire installation process is described here: <a href="https://vaadin.com/docs/latest/flow/configuration/webpush">...</a>
      *
@@ -56,8 +79,11 @@ public class WebNotificationView extends VerticalLayout {
      *
      ***/
 
-    public WebNotificationView(WebPushService webPushService, BackendService backendService) {
+    public WebNotificationView(WebPushService webPushService, SalesSnapshotService salesSnapshotService,
+                               BackendService backendService, PushMetrics pushMetrics) {
         this.webPushService = webPushService;
+        this.salesSnapshotService = salesSnapshotService;
+        this.pushMetrics = pushMetrics;
         webpush = webPushService.getWebPush();
 
         WebPush webpush = webPushService.getWebPush();
@@ -69,38 +95,38 @@ public class WebNotificationView extends VerticalLayout {
                 event.getSource().getUI().ifPresent(ui -> {
                     //step 5 register and unregister the UI instance to the web push service
                     if (event.getValue())
-                        webpush.subscribe(ui, webPushService::store);
+                        webpush.subscribe(ui, subscription -> store(ui, subscription));
                     else
                         webpush.unsubscribe(ui, webPushService::remove);
                 }));
 
-        Grid<SalesData> grid = new Grid<>();
-        grid.addColumn(SalesData::productName)
-                .setHeader("Product Name")
-                .setAutoWidth(true);
-        for (Month month : List.of(Month.JANUARY)) {
-            grid.addColumn(getSalesDataLitRenderer(month))
-                    .setAutoWidth(true)
-                    .setTextAlign(ColumnTextAlign.CENTER)
-                    .setHeader(month.name());
-        }
-        grid.setHeight("100%");
+        salesReports = new Checkbox("Also notify me when new sales reports are available");
+        salesReports.addValueChangeListener(event ->
+                event.getSource().getUI().ifPresent(ui -> {
+                    //store the subscription again with the new topics
+                    if (subscribed.getValue())
+                        webpush.fetchExistingSubscription(ui, subscription -> store(ui, subscription));
+                }));
+
+        configureSalesGrid(grid);
+        configureSalesGrid(streamGrid);
 
         var heavyButton = new Button("Do heavy stuff!");
         heavyButton.addThemeVariants(ButtonVariant.LUMO_PRIMARY);
         heavyButton.addClickListener(event -> {
             event.getSource().getUI().ifPresent(ui -> {
-                //call async services that returns a CompletableFuture
-                backendService.generateRandomSalesData()
+                //the heavy stuff is precomputed and shared by all sessions, so this
+                //completes immediately unless the first snapshot is still being computed
+                UiFutures.cancelOnDetach(this, salesSnapshotService.getSnapshot())
                         //invoke code after return
-                        .thenAccept(salesDataList -> {
+                        .thenAccept(snapshot -> {
                             //access ui instance and add component
-                            ui.access(() -> {
+                            pushMetrics.access(ui, () -> {
 
-                                //step 7: send notifiation to subscribed clients
-                                webPushService.notifyAll("Message from your Vaadin App", "Heavy Work is ready, so please come back!");
+                                //step 7: send notifiation to the subscribed clients of this user
+                                webPushService.notifyUser(userId(ui), "Message from your Vaadin App", "Heavy Work is ready, so please come back!");
 
-                                grid.setItems(salesDataList);
+                                grid.setItems(snapshot.salesData());
 
                                 content.add(grid);
                                 progressBar.setVisible(false);
@@ -108,51 +134,109 @@ public class WebNotificationView extends VerticalLayout {
                             });
                         });
             });
+            progressBar.setIndeterminate(true);
             progressBar.setVisible(true);
             heavyButton.setEnabled(false);
             content.removeAll();
         });
 
+        var productCount = new IntegerField();
+        productCount.setValue(200);
+        productCount.setMin(1);
+        productCount.setStepButtonsVisible(true);
+        productCount.setSuffixComponent(new Div("products"));
+
+        var streamButton = new Button("Stream sales data");
+        streamButton.addClickListener(event -> {
+            int total = productCount.getValue() == null ? 1 : Math.max(1, productCount.getValue());
+            event.getSource().getUI().ifPresent(ui -> {
+                //rows are shown chunk by chunk while the backend is still producing the rest
+                GridListDataView<SalesData> dataView = streamGrid.setItems(new ArrayList<>());
+                content.removeAll();
+                content.add(streamGrid);
+                //cancelled when the user leaves the view, which stops the generation
+                UiFutures.cancelOnDetach(this, backendService.streamRandomSalesData(total, STREAM_CHUNK_SIZE,
+                                chunk -> pushMetrics.access(ui, () -> {
+                                    dataView.addItems(chunk);
+                                    progressBar.setValue(dataView.getItemCount() / (double) total);
+                                })))
+                        .whenComplete((result, error) -> pushMetrics.access(ui, () -> {
+                            progressBar.setVisible(false);
+                            streamButton.setEnabled(true);
+                        }));
+            });
+            progressBar.setIndeterminate(false);
+            progressBar.setValue(0);
+            progressBar.setVisible(true);
+            streamButton.setEnabled(false);
+        });
+
         progressBar.setWidth(100, Unit.PIXELS);
         progressBar.setVisible(false);
         progressBar.setIndeterminate(true);
 
-        HorizontalLayout buttonLayout = new HorizontalLayout(heavyButton, progressBar);
+        HorizontalLayout buttonLayout = new HorizontalLayout(heavyButton, productCount, streamButton, progressBar);
         buttonLayout.setAlignItems(Alignment.CENTER);
-        add(buttonLayout, subscribed, content);
+        add(buttonLayout, subscribed, salesReports, content);
         setSizeFull();
     }
 
+    private void store(UI ui, WebPushSubscription subscription) {
+        //step 5b: index the subscription by user and topics to send targeted notifications
+        Set<String> topics = salesReports.getValue() ? Set.of(SalesReportNotifier.TOPIC) : Set.of();
+        webPushService.store(subscription, userId(ui), topics);
+    }
+
+    private static String userId(UI ui) {
+        //there is no login in this app, so the HTTP session stands in for the user
+        return ui.getSession().getSession().getId();
+    }
+
+    private void configureSalesGrid(Grid<SalesData> salesGrid) {
+        salesGrid.addColumn(SalesData::productName)
+                .setHeader("Product Name")
+                .setAutoWidth(true);
+        for (Month month : List.of(Month.JANUARY)) {
+            salesGrid.addColumn(getSalesDataLitRenderer(month))
+                    .setAutoWidth(true)
+                    .setTextAlign(ColumnTextAlign.CENTER)
+                    .setHeader(month.name());
+        }
+        salesGrid.setHeight("100%");
+    }
+
     private LitRenderer<SalesData> getSalesDataLitRenderer(Month month) {
         return LitRenderer.<SalesData>of("<div style=\"display: flex; justify-content: center;\">" +
                         "<vaadin-icon style=\"color: ${item.color};\" icon=\"lumo:arrow-${item.direction}\"></vaadin-icon>" +
                         "<div style=\"padding: 0 5px 0 5px; width: 75px; text-align: right;\">${item.value}</div>" +
                         "</div>")
-                .withProperty("color", salesData -> getTrendColor(salesData.trendPerMonth().get(month.name())))
-                .withProperty("direction", salesData -> getTrendDirection(salesData.trendPerMonth().get(month.name())))
-                .withProperty("value", salesData ->
-                        NumberFormat
-                                .getCurrencyInstance(Locale.of("fi", "FI"))
-                                .format(salesData.salesPerMonth().get(month.name())));
-    }
-
-    private String getTrendDirection(String trend) {
-            return trend.equals("rising") ? "up" : trend.equals("falling") ? "down" : "right";
-        }
-
-    private String getTrendColor(String trend) {
-        return trend.equals("rising") ? "green" : trend.equals("falling") ? "red" : "black";
+                .withProperty("color", salesData -> salesData.trend(month).getColor())
+                .withProperty("direction", salesData -> salesData.trend(month).getDirection())
+                .withProperty("value", salesData -> currencyFormat.format(salesData.sales(month)));
     }
 
     @Override
     protected void onAttach(AttachEvent attachEvent) {
         UI ui = attachEvent.getUI();
+        //show new snapshots as soon as they are computed, pushed to the client via @Push
+        snapshotRegistration = salesSnapshotService.addListener(snapshot -> pushMetrics.access(ui, () -> {
+            if (grid.isAttached()) {
+                grid.setItems(snapshot.salesData());
+            }
+        }));
         //show if registration still exist
         webpush.subscriptionExists(ui, registered -> {
             subscribed.setValue(registered);
-            if(registered && webPushService.isEmpty()) {
-                webpush.fetchExistingSubscription(ui, webPushService::store);
+            // the user and topic index is only kept in memory, so index the subscription again on every attach
+            if(registered) {
+                webpush.fetchExistingSubscription(ui, subscription -> store(ui, subscription));
             }
         });
     }
+
+    @Override
+    protected void onDetach(DetachEvent detachEvent) {
+        snapshotRegistration.remove();
+        snapshotRegistration = null;
+    }
 }
@@ -0,0 +1,116 @@
+package com.example.application.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.vaadin.flow.server.webpush.WebPushKeys;
+import com.vaadin.flow.server.webpush.WebPushSubscription;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FileWebPushSubscriptionStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysChangesAfterReopening() throws IOException {
+        Path file = directory.resolve("subscriptions.log");
+        try (FileWebPushSubscriptionStore store = new FileWebPushSubscriptionStore(file)) {
+            store.put(subscription("https://push.example.com/a", "key-a"));
+            store.put(subscription("https://push.example.com/b", "key-b"));
+            store.put(subscription("https://push.example.com/a", "key-a2"));
+            store.remove("https://push.example.com/b");
+        }
+
+        try (FileWebPushSubscriptionStore store = new FileWebPushSubscriptionStore(file)) {
+            assertThat(store.size()).isEqualTo(1);
+            assertThat(store.get("https://push.example.com/a").keys().p256dh()).isEqualTo("key-a2");
+            assertThat(store.get("https://push.example.com/b")).isNull();
+        }
+    }
+
+    @Test
+    void truncatesIncompleteRecordAtTheEnd() throws IOException {
+        Path file = directory.resolve("subscriptions.log");
+        try (FileWebPushSubscriptionStore store = new FileWebPushSubscriptionStore(file)) {
+            store.put(subscription("https://push.example.com/a", "key-a"));
+        }
+        long complete = Files.size(file);
+        // a put record cut short in the middle of its endpoint
+        Files.write(file, new byte[] {1, 0, 30, 'h', 't', 't'}, StandardOpenOption.APPEND);
+
+        try (FileWebPushSubscriptionStore store = new FileWebPushSubscriptionStore(file)) {
+            assertThat(store.size()).isEqualTo(1);
+            assertThat(Files.size(file)).isEqualTo(complete);
+            store.put(subscription("https://push.example.com/b", "key-b"));
+        }
+
+        try (FileWebPushSubscriptionStore store = new FileWebPushSubscriptionStore(file)) {
+            assertThat(store.get("https://push.example.com/a")).isNotNull();
+            assertThat(store.get("https://push.example.com/b")).isNotNull();
+        }
+    }
+
+    @Test
+    void rejectedChangeIsNeitherWrittenNorApplied() throws IOException {
+        Path file = directory.resolve("subscriptions.log");
+        String endpoint = "https://push.example.com/" + "x".repeat(70_000);
+        try (FileWebPushSubscriptionStore store = new FileWebPushSubscriptionStore(file)) {
+            store.put(subscription("https://push.example.com/a", "key-a"));
+            long length = Files.size(file);
+
+            assertThatThrownBy(() -> store.put(subscription(endpoint, "key-x")))
+                    .isInstanceOf(IllegalArgumentException.class);
+
+            assertThat(store.get(endpoint)).isNull();
+            assertThat(Files.size(file)).isEqualTo(length);
+            store.put(subscription("https://push.example.com/b", "key-b"));
+        }
+
+        try (FileWebPushSubscriptionStore store = new FileWebPushSubscriptionStore(file)) {
+            assertThat(store.size()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void compactsLogToLiveSubscriptions() throws Exception {
+        Path file = directory.resolve("subscriptions.log");
+        try (FileWebPushSubscriptionStore store = new FileWebPushSubscriptionStore(file)) {
+            // too few records to compact while running
+            for (int i = 0; i < 500; i++) {
+                store.put(subscription("https://push.example.com/" + (i % 10), "key-" + i));
+            }
+        }
+        long logged = Files.size(file);
+
+        // but more than there are subscriptions when replaying them
+        try (FileWebPushSubscriptionStore store = new FileWebPushSubscriptionStore(file)) {
+            awaitSizeBelow(file, logged / 10);
+            store.put(subscription("https://push.example.com/new", "key-new"));
+        }
+
+        try (FileWebPushSubscriptionStore store = new FileWebPushSubscriptionStore(file)) {
+            assertThat(store.size()).isEqualTo(11);
+            assertThat(store.get("https://push.example.com/9").keys().p256dh()).isEqualTo("key-499");
+            assertThat(store.get("https://push.example.com/new")).isNotNull();
+        }
+    }
+
+    // compaction runs in the background
+    private static void awaitSizeBelow(Path file, long size) throws Exception {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (Files.size(file) >= size) {
+            assertThat(System.nanoTime()).as("compaction of %s", file).isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private static WebPushSubscription subscription(String endpoint, String key) {
+        return new WebPushSubscription(endpoint, new WebPushKeys(key, "auth"));
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.application.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.application.data.SamplePerson;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SamplePersonCacheTest {
+
+    private static final String ENTITY_TYPE = SamplePerson.class.getName();
+
+    private LocalEntityInvalidationChannel channel;
+    private SamplePersonCache cache;
+
+    @BeforeEach
+    void setUp() {
+        channel = new LocalEntityInvalidationChannel();
+        cache = new SamplePersonCache(channel, 3);
+    }
+
+    @Test
+    void getReturnsCopies() {
+        cache.put(person(1L, 0, "Ada"));
+
+        SamplePerson first = cache.get(1L).orElseThrow();
+        first.setFirstName("Changed");
+
+        assertThat(cache.get(1L)).get().extracting(SamplePerson::getFirstName).isEqualTo("Ada");
+    }
+
+    @Test
+    void putKeepsNewerCachedVersion() {
+        cache.put(person(1L, 2, "New"));
+        cache.put(person(1L, 1, "Old"));
+
+        assertThat(cache.get(1L)).get().extracting(SamplePerson::getFirstName).isEqualTo("New");
+    }
+
+    @Test
+    void invalidationWithNewerVersionEvicts() {
+        cache.put(person(1L, 1, "Ada"));
+
+        channel.publish(new EntityInvalidation(ENTITY_TYPE, 1L, 2));
+
+        assertThat(cache.get(1L)).isEmpty();
+    }
+
+    @Test
+    void invalidationWithSameVersionKeepsEntry() {
+        cache.put(person(1L, 2, "Ada"));
+
+        channel.publish(new EntityInvalidation(ENTITY_TYPE, 1L, 2));
+
+        assertThat(cache.get(1L)).isPresent();
+    }
+
+    @Test
+    void invalidationOfOtherEntityTypeIsIgnored() {
+        cache.put(person(1L, 1, "Ada"));
+
+        channel.publish(new EntityInvalidation("other.Entity", 1L, 5));
+
+        assertThat(cache.get(1L)).isPresent();
+    }
+
+    @Test
+    void staleLoadAfterInvalidationIsNotCached() {
+        // loaded version 1 while another node saved version 2
+        channel.publish(new EntityInvalidation(ENTITY_TYPE, 1L, 2));
+
+        cache.put(person(1L, 1, "Stale"));
+        assertThat(cache.get(1L)).isEmpty();
+
+        cache.put(person(1L, 2, "Current"));
+        assertThat(cache.get(1L)).get().extracting(SamplePerson::getFirstName).isEqualTo("Current");
+    }
+
+    @Test
+    void updatedCachesEntityAndEvictsOlderVersionsOnOtherCaches() {
+        SamplePersonCache otherNode = new SamplePersonCache(channel, 3);
+        otherNode.put(person(1L, 1, "Old"));
+
+        cache.updated(person(1L, 2, "New"));
+
+        assertThat(cache.get(1L)).get().extracting(SamplePerson::getFirstName).isEqualTo("New");
+        assertThat(otherNode.get(1L)).isEmpty();
+    }
+
+    @Test
+    void deletedEvictsEverywhereAndRefusesLaterPuts() {
+        SamplePersonCache otherNode = new SamplePersonCache(channel, 3);
+        cache.put(person(1L, 1, "Ada"));
+        otherNode.put(person(1L, 1, "Ada"));
+
+        cache.deleted(1L);
+        // loaded before the deletion, put after it
+        cache.put(person(1L, 1, "Ada"));
+        otherNode.put(person(1L, 1, "Ada"));
+
+        assertThat(cache.get(1L)).isEmpty();
+        assertThat(otherNode.get(1L)).isEmpty();
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvicted() {
+        cache.put(person(1L, 0, "One"));
+        cache.put(person(2L, 0, "Two"));
+        cache.put(person(3L, 0, "Three"));
+        cache.get(1L);
+
+        cache.put(person(4L, 0, "Four"));
+
+        assertThat(cache.size()).isEqualTo(3);
+        assertThat(cache.get(2L)).isEmpty();
+        assertThat(cache.get(1L)).isPresent();
+        assertThat(cache.get(3L)).isPresent();
+        assertThat(cache.get(4L)).isPresent();
+    }
+
+    private static SamplePerson person(Long id, int version, String firstName) {
+        SamplePerson person = new VersionedPerson(version);
+        person.setId(id);
+        person.setFirstName(firstName);
+        return person;
+    }
+
+    // the version is managed by JPA and cannot be set from outside the entity
+    private static class VersionedPerson extends SamplePerson {
+
+        VersionedPerson(int version) {
+            setVersion(version);
+        }
+    }
+}
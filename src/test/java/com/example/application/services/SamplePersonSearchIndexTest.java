@@ -0,0 +1,148 @@
+package com.example.application.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.example.application.data.SamplePerson;
+import com.example.application.data.SamplePersonRepository;
+import com.example.application.data.SamplePersonRow;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+
+class SamplePersonSearchIndexTest {
+
+    private SamplePersonRepository repository;
+    private SamplePersonSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(SamplePersonRepository.class);
+        index = new SamplePersonSearchIndex(repository);
+    }
+
+    @Test
+    void searchFindsSubstringsIgnoringCase() {
+        index.put(person(1L, "Ada", "Lovelace", "ada@example.com", "Mathematician"));
+        index.put(person(2L, "Alan", "Turing", "alan@example.com", "Cryptanalyst"));
+
+        assertThat(index.search("LOVE", 10)).containsExactly(1L);
+        assertThat(index.search("example.com", 10)).containsExactly(1L, 2L);
+        assertThat(index.search("nobody", 10)).isEmpty();
+    }
+
+    @Test
+    void prefixMatchesComeFirst() {
+        index.put(person(1L, "Maria", "McAdams", "m@example.com", "Teacher"));
+        index.put(person(2L, "Adam", "Smith", "a@example.com", "Baker"));
+
+        assertThat(index.search("adam", 10)).containsExactly(2L, 1L);
+    }
+
+    @Test
+    void limitKeepsBestMatches() {
+        for (long id = 1; id <= 10; id++) {
+            index.put(person(id, "Name" + id, "Last", "x@example.com", "Job"));
+        }
+        index.put(person(11L, "Other", "Lastname", "y@example.com", "Job"));
+
+        assertThat(index.search("last", 3)).containsExactly(1L, 2L, 3L);
+        assertThat(index.search("ast", 3)).containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    void queriesShorterThanATrigramFindNothing() {
+        index.put(person(1L, "Ada", "Lovelace", "ada@example.com", "Mathematician"));
+
+        assertThat(index.search("ad", 10)).isEmpty();
+    }
+
+    @Test
+    void updateReplacesIndexedText() {
+        index.put(person(1L, "Ada", "Lovelace", "ada@example.com", "Mathematician"));
+
+        index.put(person(1L, "Ada", "Byron", "ada@example.com", "Mathematician"));
+
+        assertThat(index.search("lovelace", 10)).isEmpty();
+        assertThat(index.search("byron", 10)).containsExactly(1L);
+        assertThat(index.search("ada", 10)).containsExactly(1L);
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    void removeDropsPerson() {
+        index.put(person(1L, "Ada", "Lovelace", "ada@example.com", "Mathematician"));
+        index.put(person(2L, "Alan", "Turing", "alan@example.com", "Cryptanalyst"));
+
+        index.remove(1L);
+
+        assertThat(index.search("example", 10)).containsExactly(2L);
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    void repeatedUpdatesAndRemovalsKeepResultsExact() {
+        for (long id = 1; id <= 500; id++) {
+            index.put(person(id, "First" + id, "Common", id + "@example.com", "Job"));
+        }
+        // drops "common" from most documents, enough to compact its posting lists
+        for (long id = 1; id <= 400; id++) {
+            index.put(person(id, "First" + id, "Renamed", id + "@example.com", "Job"));
+        }
+        for (long id = 401; id <= 450; id++) {
+            index.remove(id);
+        }
+        // reuses the numbers of the removed people
+        for (long id = 1001; id <= 1050; id++) {
+            index.put(person(id, "First" + id, "Common", id + "@example.com", "Job"));
+        }
+        // and brings some trigrams back to documents that lost them
+        index.put(person(7L, "First7", "Common", "7@example.com", "Job"));
+
+        List<Long> common = index.search("common", 1000);
+        assertThat(common).hasSize(101).contains(7L, 451L, 500L, 1001L, 1050L).doesNotContain(1L, 401L);
+        assertThat(index.search("renamed", 1000)).hasSize(399).doesNotContain(7L);
+        assertThat(index.size()).isEqualTo(500 - 50 + 50);
+    }
+
+    @Test
+    void rebuildKeepsPeopleIndexedMeanwhile() {
+        SamplePersonRow stale = row(1L, "Ada", "Lovelace", "ada@example.com", "Mathematician");
+        SamplePersonRow other = row(2L, "Alan", "Turing", "alan@example.com", "Cryptanalyst");
+        when(repository.findRowsBy(any(ScrollPosition.class), any(Sort.class), any(Limit.class)))
+                .thenReturn(Window.from(List.of(stale, other), ScrollPosition::offset));
+        index.put(person(1L, "Ada", "Byron", "ada@example.com", "Mathematician"));
+
+        index.rebuild();
+
+        assertThat(index.search("lovelace", 10)).isEmpty();
+        assertThat(index.search("byron", 10)).containsExactly(1L);
+        assertThat(index.search("turing", 10)).containsExactly(2L);
+    }
+
+    private static SamplePerson person(Long id, String firstName, String lastName, String email, String occupation) {
+        SamplePerson person = new SamplePerson();
+        person.setId(id);
+        person.setFirstName(firstName);
+        person.setLastName(lastName);
+        person.setEmail(email);
+        person.setOccupation(occupation);
+        return person;
+    }
+
+    private static SamplePersonRow row(Long id, String firstName, String lastName, String email, String occupation) {
+        SamplePersonRow row = mock(SamplePersonRow.class);
+        when(row.getId()).thenReturn(id);
+        when(row.getFirstName()).thenReturn(firstName);
+        when(row.getLastName()).thenReturn(lastName);
+        when(row.getEmail()).thenReturn(email);
+        when(row.getOccupation()).thenReturn(occupation);
+        return row;
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.application.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class TokenBucketRateLimiterTest {
+
+    private long now;
+    // 6 per minute, i.e. one permit every 10 seconds
+    private final TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(6, 3, () -> now);
+
+    @Test
+    void burstIsAvailableAtOnce() {
+        assertThat(limiter.tryAcquire("a")).isTrue();
+        assertThat(limiter.tryAcquire("a")).isTrue();
+        assertThat(limiter.tryAcquire("a")).isTrue();
+
+        assertThat(limiter.tryAcquire("a")).isFalse();
+        assertThat(limiter.tryAcquire("b")).isTrue();
+    }
+
+    @Test
+    void permitsRefillOverTime() {
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire("a");
+        }
+        assertThat(limiter.nanosUntilAvailable("a")).isEqualTo(TimeUnit.SECONDS.toNanos(10));
+
+        advanceSeconds(9);
+        assertThat(limiter.tryAcquire("a")).isFalse();
+        assertThat(limiter.nanosUntilAvailable("a")).isEqualTo(TimeUnit.SECONDS.toNanos(1));
+
+        advanceSeconds(1);
+        assertThat(limiter.nanosUntilAvailable("a")).isZero();
+        assertThat(limiter.tryAcquire("a")).isTrue();
+        assertThat(limiter.tryAcquire("a")).isFalse();
+    }
+
+    @Test
+    void refillStopsAtBurst() {
+        limiter.tryAcquire("a");
+
+        advanceSeconds(600);
+
+        assertThat(limiter.tryAcquire("a")).isTrue();
+        assertThat(limiter.tryAcquire("a")).isTrue();
+        assertThat(limiter.tryAcquire("a")).isTrue();
+        assertThat(limiter.tryAcquire("a")).isFalse();
+    }
+
+    @Test
+    void evictFullDropsOnlyRefilledBuckets() {
+        limiter.tryAcquire("a");
+        advanceSeconds(5);
+        limiter.tryAcquire("b");
+        advanceSeconds(5);
+
+        limiter.evictFull();
+
+        assertThat(limiter.size()).isEqualTo(1);
+        assertThat(limiter.nanosUntilAvailable("a")).isZero();
+
+        advanceSeconds(5);
+        limiter.evictFull();
+
+        assertThat(limiter.size()).isZero();
+    }
+
+    @Test
+    void noLimitKeepsNoBuckets() {
+        TokenBucketRateLimiter unlimited = new TokenBucketRateLimiter(0, 3, () -> now);
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(unlimited.tryAcquire("a")).isTrue();
+        }
+        assertThat(unlimited.size()).isZero();
+    }
+
+    private void advanceSeconds(long seconds) {
+        now += TimeUnit.SECONDS.toNanos(seconds);
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.application.views.masterdetail;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.vaadin.flow.data.provider.Query;
+import com.vaadin.flow.data.provider.QuerySortOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+
+class KeysetFetchCallbackTest {
+
+    private static final int ROWS = 100_000;
+
+    private final List<ScrollPosition> keysetLoads = new ArrayList<>();
+    private final List<Integer> offsetLoads = new ArrayList<>();
+    private KeysetFetchCallback<Long> callback;
+
+    @BeforeEach
+    void setUp() {
+        // ids 1..ROWS in id order
+        callback = new KeysetFetchCallback<>(this::loadWindow, query -> {
+            offsetLoads.add(query.getOffset());
+            return LongStream.rangeClosed(1, ROWS).skip(query.getOffset()).limit(query.getLimit()).boxed();
+        }, id -> Map.of("id", id), Set.of());
+    }
+
+    @Test
+    void sequentialPagesUseKeysetFetches() {
+        assertThat(fetch(0, 50)).startsWith(1L).endsWith(50L);
+        assertThat(fetch(50, 50)).startsWith(51L).endsWith(100L);
+
+        assertThat(offsetLoads).isEmpty();
+        assertThat(keysetLoads).hasSize(2);
+    }
+
+    @Test
+    void pagesAfterJumpSeekFromTheJumpTarget() {
+        fetch(0, 50);
+
+        assertThat(fetch(60_000, 50)).startsWith(60_001L).endsWith(60_050L);
+        assertThat(offsetLoads).containsExactly(60_000);
+
+        assertThat(fetch(60_050, 50)).startsWith(60_051L).endsWith(60_100L);
+        assertThat(fetch(60_100, 50)).startsWith(60_101L).endsWith(60_150L);
+        assertThat(offsetLoads).containsExactly(60_000);
+        assertThat(keysetLoads.get(1)).isEqualTo(ScrollPosition.forward(Map.of("id", 60_050L)));
+    }
+
+    @Test
+    void sortsByOtherPropertiesUseOffsetQueries() {
+        Query<Long, Void> byName = new Query<>(0, 50, QuerySortOrder.asc("lastName").build(), null, null);
+
+        callback.fetch(byName).toList();
+
+        assertThat(offsetLoads).containsExactly(0);
+        assertThat(keysetLoads).isEmpty();
+    }
+
+    private List<Long> fetch(int offset, int limit) {
+        return callback.fetch(new Query<>(offset, limit, List.of(), null, null)).toList();
+    }
+
+    private Window<Long> loadWindow(ScrollPosition position, Sort sort, int limit) {
+        keysetLoads.add(position);
+        long after = position instanceof KeysetScrollPosition keyset && !keyset.isInitial()
+                ? (Long) keyset.getKeys().get("id")
+                : 0;
+        List<Long> ids = LongStream.rangeClosed(after + 1, Math.min(ROWS, after + limit)).boxed().toList();
+        return Window.from(ids, index -> ScrollPosition.forward(Map.of("id", ids.get(index))),
+                after + limit < ROWS);
+    }
+}